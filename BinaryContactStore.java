@@ -0,0 +1,739 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <tt>BinaryContactStore</tt> is a <tt>ContactStore</tt> which stores the contacts in a compact binary file.
+ *
+ * <p> The contacts are stored in the same order as the lines of a ".txt" contact list. The names are front
+ * coded in blocks of <tt>BLOCK_SIZE</tt> names: the first name of a block is stored as it is and every
+ * other name is stored as the length of the prefix it shares with the previous name and the rest of
+ * its bytes. The numbers are stored in 5 bytes each in the same order, followed by the indexes of the
+ * contacts as ints in the order of their numbers, so a number is binary searched through these indexes
+ * without storing it twice. </p>
+ *
+ * <code>
+ * header         : magic(int) version(int) count(int) blockCount(int) blockIndexOffset(long)
+ *                  numbersOffset(long) byNumberOffset(long)
+ * blocks         : blockCount x [length(varint) bytes, (BLOCK_SIZE - 1) x [shared(varint) length(varint) bytes]]
+ * block index    : blockCount x offset(long)
+ * numbers        : count x number(5 bytes)
+ * by number      : count x index(int), in the order of the numbers and then the indexes
+ * </code>
+ *
+ * <p> The file is memory mapped. Names are binary searched on the first names of the blocks and compared
+ * as bytes, and numbers are binary searched through the indexes by number, so only the matching contacts are
+ * decoded. Files are detected by the magic number with <tt>isBinary</tt>. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public class BinaryContactStore implements ContactStore {
+    private static final int MAGIC = 0x434C424E;    // "CLBN"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 40;
+    // Bits of the contact index when the numbers are sorted, a file of at most 2GB has less contacts
+    private static final int INDEX_BITS = 29;
+    // Bytes of a stored number, a 10 digit number needs 34 bits
+    private static final int NUMBER_BYTES = 5;
+    // Number of names of a block, the first name of a block is not front coded
+    private static final int BLOCK_SIZE = 16;
+
+    private final File file;
+    private MappedByteBuffer buf = null;
+    private String mappedStamp = null;  // modification time and size of the mapped file
+
+    /**
+     * Constructs a <tt>BinaryContactStore</tt>.
+     *
+     * @param file the binary file of the contacts
+     */
+    public BinaryContactStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * <tt>isBinary(file)</tt> checks whether a file is a binary contact list.
+     *
+     * @param file file
+     * @return true if the file starts with the magic number of the binary format
+     */
+    public static boolean isBinary(File file) {
+        if (file.length() < HEADER_SIZE) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * <tt>findByName(name)</tt> returns the contacts whose names start with the given name.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If the file cannot be read
+     */
+    @Override
+    public List<Contact> findByName(String name) throws IOException {
+        OperationStats.begin("name", file.getPath(), name);
+        try {
+            ByteBuffer buf = map();
+            byte[] prefix = name.getBytes(StandardCharsets.UTF_8);
+            int count = buf.getInt(8);
+            int blockCount = buf.getInt(12);
+
+            // Finding the last block whose first line is less than the name
+            int lo = 0;
+            int hi = blockCount;
+            byte[] first = new byte[64];
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int position = blockOffset(buf, mid);
+                int length = (int) readVarint(buf, position);
+                first = copyName(buf, skipVarint(buf, position), length, first, 0);
+                if (comparePrefix(first, length, numberAt(buf, mid * BLOCK_SIZE), prefix) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            // Scanning from that block until the lines are greater than the name
+            ArrayList<Contact> contacts = new ArrayList<>();
+            Cursor cursor = new Cursor(buf, Math.max(lo - 1, 0) * BLOCK_SIZE);
+            while (cursor.index < count) {
+                cursor.next();
+                int cmp = comparePrefix(cursor.name, cursor.length, cursor.number, prefix);
+                if (cmp == 0) {
+                    contacts.add(cursor.contact());
+                } else if (cmp > 0) {
+                    break;
+                }
+            }
+            OperationStats.addLinesScanned(cursor.scanned);
+            OperationStats.addMatches(contacts.size());
+            return contacts;
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>findContaining(name)</tt> returns the contacts which contain the given name anywhere.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If the file cannot be read
+     */
+    @Override
+    public List<Contact> findContaining(String name) throws IOException {
+        OperationStats.begin("contains", file.getPath(), name);
+        try {
+            ByteBuffer buf = map();
+            byte[] pattern = name.getBytes(StandardCharsets.UTF_8);
+            ArrayList<Contact> contacts = new ArrayList<>();
+            Cursor cursor = new Cursor(buf, 0);
+            byte[] line = new byte[64];
+            while (cursor.index < buf.getInt(8)) {
+                cursor.next();
+                // Building the line bytes, so the pattern may span the name and the number
+                if (line.length < cursor.length + 14) line = Arrays.copyOf(line, (cursor.length + 14) * 2);
+                System.arraycopy(cursor.name, 0, line, 0, cursor.length);
+                line[cursor.length] = ':';
+                line[cursor.length + 1] = ' ';
+                for (int k = 0; k < 12; k++) {
+                    line[cursor.length + 2 + k] = (byte) Contact.formattedDigit(cursor.number, k);
+                }
+                if (indexOf(line, cursor.length + 14, pattern) >= 0) contacts.add(cursor.contact());
+            }
+            OperationStats.addLinesScanned(cursor.scanned);
+            OperationStats.addBytesRead(buf.limit());
+            OperationStats.addMatches(contacts.size());
+            return contacts;
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>findByNumber(number)</tt> returns the contacts of a phone number.
+     * The number is binary searched through the indexes by number and only the matching contacts are decoded.
+     *
+     * @param number phone number
+     * @return the matching contacts in order
+     * @throws IOException If the file cannot be read
+     */
+    @Override
+    public List<Contact> findByNumber(long number) throws IOException {
+        OperationStats.begin("number", file.getPath(), String.valueOf(number));
+        try {
+            ByteBuffer buf = map();
+            ArrayList<Contact> contacts = new ArrayList<>();
+            int count = buf.getInt(8);
+            // The contacts of a number are next to each other, in the order of their indexes
+            for (int i = findNumber(buf, number); i < count; i++) {
+                int index = byNumber(buf, i);
+                if (numberAt(buf, index) != number) break;
+                contacts.add(contactAt(buf, index));
+            }
+            OperationStats.addLinesScanned(contacts.size());
+            OperationStats.addMatches(contacts.size());
+            return contacts;
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>insert(name, number)</tt> inserts a contact. The file is rewritten.
+     *
+     * @param name name
+     * @param number phone number
+     * @throws InputDuplicateNumberException If the phone number is already stored
+     * @throws IOException If the file cannot be written
+     */
+    @Override
+    public void insert(String name, long number) throws IOException {
+        List<InputDuplicateNumberException> rejects = insertAll(Collections.singletonList(new Contact(name, number)));
+        if (!rejects.isEmpty()) throw rejects.get(0);
+    }
+
+    /**
+     * <tt>insertAll(contacts)</tt> inserts a batch of contacts with one rewrite of the file.
+     *
+     * @param contacts the contacts which are to be inserted
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the input order
+     * @throws IOException If the file cannot be written
+     */
+    @Override
+    public List<InputDuplicateNumberException> insertAll(Collection<Contact> contacts) throws IOException {
+        OperationStats.begin("insert", file.getPath(), null);
+        try {
+            ContactListLock lock = ContactListLock.acquire(file);
+            try {
+                // Removing the duplicates in the input order, the stored numbers are binary searched
+                ByteBuffer buf = map();
+                HashMap<Long, Contact> batchNumbers = new HashMap<>();
+                ArrayList<InputDuplicateNumberException> rejects = new ArrayList<>();
+                ArrayList<Contact> accepted = new ArrayList<>(contacts.size());
+                for (Contact contact : contacts) {
+                    Contact stored = findStored(buf, contact.getNumber());
+                    if (stored != null) {
+                        rejects.add(new InputDuplicateNumberException("The Number is Already Available in the " +
+                                "Contact List : " + stored));
+                    } else if (batchNumbers.get(contact.getNumber()) != null) {
+                        rejects.add(new InputDuplicateNumberException("The Number is Already Available in the " +
+                                "Contact List : " + batchNumbers.get(contact.getNumber())));
+                    } else {
+                        batchNumbers.put(contact.getNumber(), contact);
+                        accepted.add(contact);
+                    }
+                }
+                if (accepted.isEmpty()) return rejects;
+
+                // Merging the sorted batch with the stored contacts into a new file
+                long sortStart = System.nanoTime();
+                Collections.sort(accepted);
+                OperationStats.addSortTime(System.nanoTime() - sortStart);
+                merge(accepted.iterator());
+                OperationStats.addMatches(accepted.size());
+                return rejects;
+            } finally {
+                lock.close();
+            }
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>insertSorted(contacts)</tt> merges sorted contacts with the stored contacts into a new file.
+     * The contacts are read while the file is written, so none of them is held in memory.
+     *
+     * @param contacts the contacts which are to be inserted, in order, with distinct numbers
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the order of the contacts
+     * @throws IOException If the contacts are not in order or the file cannot be written
+     */
+    @Override
+    public List<InputDuplicateNumberException> insertSorted(Iterator<Contact> contacts) throws IOException {
+        OperationStats.begin("insert", file.getPath(), null);
+        try {
+            ContactListLock lock = ContactListLock.acquire(file);
+            try {
+                // Removing the stored numbers while the contacts are merged
+                ByteBuffer buf = map();
+                LongAdder inserted = new LongAdder();
+                ArrayList<InputDuplicateNumberException> rejects = new ArrayList<>();
+                merge(new Iterator<Contact>() {
+                    private Contact next = null;
+                    private Contact previous = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && contacts.hasNext()) {
+                            Contact contact = contacts.next();
+                            if (previous != null && contact.compareTo(previous) < 0)
+                                throw new UncheckedIOException(new IOException("Contacts are not in order : " + contact));
+                            previous = contact;
+                            Contact stored = findStored(buf, contact.getNumber());
+                            if (stored != null) {
+                                rejects.add(new InputDuplicateNumberException("The Number is Already Available " +
+                                        "in the Contact List : " + stored));
+                            } else {
+                                inserted.increment();
+                                next = contact;
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Contact next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        Contact contact = next;
+                        next = null;
+                        return contact;
+                    }
+                });
+                OperationStats.addMatches(inserted.sum());
+                return rejects;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                lock.close();
+            }
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>merge(batch)</tt> merges sorted contacts with the stored contacts into a new file.
+     * The caller should hold the <tt>ContactListLock</tt>.
+     *
+     * @param batch the contacts which are to be inserted, in order
+     * @throws IOException If the file cannot be written
+     */
+    private void merge(Iterator<Contact> batch) throws IOException {
+        long writeStart = System.nanoTime();
+        try (Stream<Contact> storedContacts = stream()) {
+            Iterator<Contact> old = storedContacts.iterator();
+            write(file, new Iterator<Contact>() {
+                private Contact nextOld = old.hasNext() ? old.next() : null;
+                private Contact nextNew = batch.hasNext() ? batch.next() : null;
+
+                @Override
+                public boolean hasNext() {
+                    return nextOld != null || nextNew != null;
+                }
+
+                @Override
+                public Contact next() {
+                    Contact next;
+                    if (nextNew == null || (nextOld != null && nextOld.compareTo(nextNew) <= 0)) {
+                        next = nextOld;
+                        nextOld = old.hasNext() ? old.next() : null;
+                    } else {
+                        next = nextNew;
+                        nextNew = batch.hasNext() ? batch.next() : null;
+                    }
+                    return next;
+                }
+            });
+        }
+        OperationStats.addWriteTime(System.nanoTime() - writeStart);
+        OperationStats.addBytesWritten(file.length());
+    }
+
+    /**
+     * <tt>stream()</tt> returns all the contacts in order. The stream is read from a mapping
+     * of the file, so it is not changed by later writes.
+     *
+     * @return stream of the contacts
+     * @throws IOException If the file cannot be read
+     */
+    @Override
+    public Stream<Contact> stream() throws IOException {
+        ByteBuffer buf = map();
+        int count = buf.getInt(8);
+        Cursor cursor = new Cursor(buf, 0);
+        Iterator<Contact> iterator = new Iterator<Contact>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.index < count;
+            }
+
+            @Override
+            public Contact next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                cursor.next();
+                return cursor.contact();
+            }
+        };
+        OperationStats.addBytesRead(buf.limit());
+        return StreamSupport.stream(Spliterators.spliterator(iterator, count,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED), false);
+    }
+
+    /**
+     * <tt>write(target, contacts)</tt> writes contacts to a binary file.
+     *
+     * <p> Only the contacts whose lines are in "Name: 808-779-1466" format are stored, so a text
+     * contact list which is converted to the binary format and back is the same file. </p>
+     *
+     * <p> The caller should hold the <tt>ContactListLock</tt> of the target. </p>
+     *
+     * @param target the binary file
+     * @param contacts the contacts in order
+     * @return number of written contacts
+     * @throws IOException If a contact cannot be stored in the binary format or the file cannot be written
+     */
+    public static int write(File target, Iterator<Contact> contacts) throws IOException {
+        File tempFile = File.createTempFile("contact_list", ".tmp", target.getAbsoluteFile().getParentFile());
+        try {
+            int count = 0;
+            int blockCount;
+            long position = HEADER_SIZE;    // DataOutputStream.size() stops at Integer.MAX_VALUE
+            long blockIndexOffset;
+            long numbersOffset;
+            long byNumberOffset;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tempFile), 1 << 16))) {
+                out.write(new byte[HEADER_SIZE]);   // the header is written after the contacts
+
+                // Writing the front coded names of the blocks
+                long[] numbers = new long[1024];
+                long[] blockOffsets = new long[64];
+                byte[] previous = new byte[0];
+                while (contacts.hasNext()) {
+                    Contact contact = contacts.next();
+                    if (contact.getNumber() < 0 || contact.getNumber() >= 1L << NUMBER_BYTES * 8
+                            || !new Contact(contact.getName(), contact.getNumber()).toString().equals(contact.toString()))
+                        throw new IOException("Contact cannot be stored in the binary format : " + contact);
+                    if (count == 1 << INDEX_BITS || position > Integer.MAX_VALUE)
+                        throw new IOException("Contact List is too large for the binary format");
+                    byte[] name = contact.getName().getBytes(StandardCharsets.UTF_8);
+                    if (count % BLOCK_SIZE == 0) {
+                        if (count / BLOCK_SIZE == blockOffsets.length) blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+                        blockOffsets[count / BLOCK_SIZE] = position;
+                        position += writeVarint(out, name.length);
+                        out.write(name);
+                        position += name.length;
+                    } else {
+                        int shared = 0;
+                        while (shared < name.length && shared < previous.length && name[shared] == previous[shared]) shared++;
+                        position += writeVarint(out, shared);
+                        position += writeVarint(out, name.length - shared);
+                        out.write(name, shared, name.length - shared);
+                        position += name.length - shared;
+                    }
+                    if (count == numbers.length) numbers = Arrays.copyOf(numbers, count * 2);
+                    numbers[count++] = contact.getNumber();
+                    previous = name;
+                }
+
+                // Writing the block index, the numbers and the indexes by number
+                blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+                blockIndexOffset = position;
+                numbersOffset = blockIndexOffset + blockCount * 8L;
+                byNumberOffset = numbersOffset + (long) count * NUMBER_BYTES;
+                if (byNumberOffset + count * 4L > Integer.MAX_VALUE)
+                    throw new IOException("Contact List is too large for the binary format");
+                for (int i = 0; i < blockCount; i++) out.writeLong(blockOffsets[i]);
+                for (int i = 0; i < count; i++) {
+                    out.writeByte((int) (numbers[i] >>> 32));
+                    out.writeInt((int) numbers[i]);
+                }
+                // Sorting the numbers packed with their indexes, only the indexes are written
+                for (int i = 0; i < count; i++) numbers[i] = numbers[i] << INDEX_BITS | i;
+                Arrays.sort(numbers, 0, count);
+                for (int i = 0; i < count; i++) out.writeInt((int) (numbers[i] & ((1L << INDEX_BITS) - 1)));
+            }
+
+            // Writing the header
+            try (RandomAccessFile header = new RandomAccessFile(tempFile, "rw")) {
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeInt(count);
+                header.writeInt(blockCount);
+                header.writeLong(blockIndexOffset);
+                header.writeLong(numbersOffset);
+                header.writeLong(byNumberOffset);
+            }
+            ContactListLock.replace(tempFile, target);
+            return count;
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * <tt>Cursor</tt> decodes the front coded names one after another from the start of a block.
+     */
+    private static class Cursor {
+        private final ByteBuffer buf;
+        private int position;   // byte offset of the next name
+        private int index;      // index of the next contact
+        private byte[] name = new byte[64];
+        private int length = 0; // length of the current name
+        private long number;    // number of the current contact
+        private long scanned = 0;
+
+        /**
+         * Constructs a <tt>Cursor</tt> at the first contact of a block.
+         *
+         * @param buf mapped file
+         * @param index index of the first contact of a block
+         */
+        Cursor(ByteBuffer buf, int index) {
+            this.buf = buf;
+            this.index = index;
+            this.position = index < buf.getInt(8) ? blockOffset(buf, index / BLOCK_SIZE) : 0;
+        }
+
+        /**
+         * <tt>next()</tt> decodes the next contact.
+         */
+        void next() {
+            int shared = 0;
+            if (index % BLOCK_SIZE != 0) {
+                shared = (int) readVarint(buf, position);
+                position = skipVarint(buf, position);
+            }
+            int suffix = (int) readVarint(buf, position);
+            position = skipVarint(buf, position);
+            name = copyName(buf, position, suffix, name, shared);
+            position += suffix;
+            length = shared + suffix;
+            number = numberAt(buf, index);
+            index++;
+            scanned++;
+        }
+
+        /**
+         * @return the current contact
+         */
+        Contact contact() {
+            return new Contact(new String(name, 0, length, StandardCharsets.UTF_8), number);
+        }
+    }
+
+    /**
+     * <tt>map()</tt> memory maps the file. The mapping is reused while the modification time and
+     * the size of the file are unchanged.
+     *
+     * @return the mapped file
+     * @throws IOException If the file cannot be mapped or it is not a binary contact list
+     */
+    private synchronized ByteBuffer map() throws IOException {
+        String stamp = file.lastModified() + ":" + file.length();
+        if (!stamp.equals(mappedStamp)) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE)
+                    throw new IOException("Contact List is too large for the binary format");
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+                throw new IOException("Not a binary Contact List : " + file);
+            if (buf.getInt(4) != VERSION)
+                throw new IOException("Unsupported version of binary Contact List, export it again : " + file);
+            mappedStamp = stamp;
+        }
+        return buf;
+    }
+
+    /**
+     * <tt>findNumber(buf, number)</tt> binary searches a number through the indexes by number.
+     *
+     * @param buf mapped file
+     * @param number phone number
+     * @return position in the indexes by number of the first contact whose number is not less than the
+     * number, it is the number of contacts if there is none
+     */
+    private static int findNumber(ByteBuffer buf, long number) {
+        int lo = 0;
+        int hi = buf.getInt(8);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (numberAt(buf, byNumber(buf, mid)) < number) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * <tt>findStored(buf, number)</tt> returns the first stored contact of a number.
+     *
+     * @param buf mapped file
+     * @param number phone number
+     * @return the contact, or null if the number is not stored
+     */
+    private static Contact findStored(ByteBuffer buf, long number) {
+        int i = findNumber(buf, number);
+        if (i == buf.getInt(8)) return null;
+        int index = byNumber(buf, i);
+        if (numberAt(buf, index) != number) return null;
+        return contactAt(buf, index);
+    }
+
+    /**
+     * <tt>byNumber(buf, i)</tt> returns the index of a contact in the order of the numbers.
+     *
+     * @param buf mapped file
+     * @param i position in the indexes by number
+     * @return index of the contact
+     */
+    private static int byNumber(ByteBuffer buf, int i) {
+        return buf.getInt((int) buf.getLong(32) + i * 4);
+    }
+
+    /**
+     * <tt>contactAt(buf, index)</tt> decodes a contact, from the start of its block.
+     *
+     * @param buf mapped file
+     * @param index index of the contact
+     * @return the contact
+     */
+    private static Contact contactAt(ByteBuffer buf, int index) {
+        Cursor cursor = new Cursor(buf, index / BLOCK_SIZE * BLOCK_SIZE);
+        while (cursor.index <= index) cursor.next();
+        return cursor.contact();
+    }
+
+    /**
+     * <tt>comparePrefix(name, length, number, prefix)</tt> compares the beginning of the line of a contact
+     * with a prefix, without creating the line.
+     *
+     * @param name name bytes
+     * @param length length of the name
+     * @param number phone number
+     * @param prefix the prefix bytes
+     * @return 0 if the line starts with the prefix, a negative value if the line is less than the prefix
+     * and a positive value if it is greater than the prefix
+     */
+    private static int comparePrefix(byte[] name, int length, long number, byte[] prefix) {
+        for (int k = 0; k < prefix.length; k++) {
+            if (k >= length + 14) return -1;    // line is shorter than the prefix
+            int b = k < length ? name[k] & 0xFF : k == length ? ':' : k == length + 1 ? ' '
+                    : Contact.formattedDigit(number, k - length - 2);
+            if (b != (prefix[k] & 0xFF)) return b - (prefix[k] & 0xFF);
+        }
+        return 0;
+    }
+
+    /**
+     * <tt>indexOf(line, length, pattern)</tt> finds a pattern in the bytes of a line.
+     *
+     * @param line line bytes
+     * @param length length of the line
+     * @param pattern pattern bytes
+     * @return position of the pattern, or -1
+     */
+    private static int indexOf(byte[] line, int length, byte[] pattern) {
+        outer:
+        for (int i = 0; i + pattern.length <= length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (line[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * <tt>copyName(buf, position, length, name, offset)</tt> copies the bytes of a name from the file.
+     *
+     * @param buf mapped file
+     * @param position byte offset of the bytes
+     * @param length number of bytes
+     * @param name the name buffer, it is grown if it is too small
+     * @param offset position in the name buffer
+     * @return the name buffer
+     */
+    private static byte[] copyName(ByteBuffer buf, int position, int length, byte[] name, int offset) {
+        if (name.length < offset + length) name = Arrays.copyOf(name, (offset + length) * 2);
+        buf.get(position, name, offset, length);
+        return name;
+    }
+
+    /**
+     * <tt>blockOffset(buf, block)</tt> returns the byte offset of a block from the block index.
+     *
+     * @param buf mapped file
+     * @param block index of the block
+     * @return byte offset of the block
+     */
+    private static int blockOffset(ByteBuffer buf, int block) {
+        return (int) buf.getLong((int) buf.getLong(16) + block * 8);
+    }
+
+    /**
+     * <tt>numberAt(buf, index)</tt> returns the number of a contact without decoding its name.
+     *
+     * @param buf mapped file
+     * @param index index of the contact
+     * @return phone number
+     */
+    private static long numberAt(ByteBuffer buf, int index) {
+        int offset = (int) buf.getLong(24) + index * NUMBER_BYTES;
+        return (buf.get(offset) & 0xFFL) << 32 | buf.getInt(offset + 1) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * <tt>writeVarint(out, value)</tt> writes a value in 7 bit groups, the least significant group first.
+     *
+     * @param out output
+     * @param value non negative value
+     * @return number of written bytes
+     * @throws IOException If the value cannot be written
+     */
+    private static int writeVarint(DataOutputStream out, int value) throws IOException {
+        int bytes = 1;
+        while (value >= 0x80) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+            bytes++;
+        }
+        out.write(value);
+        return bytes;
+    }
+
+    /**
+     * <tt>readVarint(buf, position)</tt> reads a value written by <tt>writeVarint</tt>.
+     *
+     * @param buf mapped file
+     * @param position byte offset of the value
+     * @return the value
+     */
+    private static long readVarint(ByteBuffer buf, int position) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buf.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /**
+     * <tt>skipVarint(buf, position)</tt> skips a value written by <tt>writeVarint</tt>.
+     *
+     * @param buf mapped file
+     * @param position byte offset of the value
+     * @return byte offset after the value
+     */
+    private static int skipVarint(ByteBuffer buf, int position) {
+        while (buf.get(position) < 0) position++;
+        return position + 1;
+    }
+}
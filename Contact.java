@@ -0,0 +1,154 @@
+/**
+ * <tt>Contact</tt> is an entry of a contact list, a name and a phone number.
+ *
+ * <p> Contacts are ordered in the same way as the lines of a contact list text file
+ * ("Name: 808-779-1466"), so a sorted list of contacts is in the order of the file. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public final class Contact implements Comparable<Contact> {
+    private final String name;
+    private final long number;
+    private String line;    // the line in the contact list, created on demand
+
+    /**
+     * Constructs a <tt>Contact</tt>.
+     *
+     * @param name name
+     * @param number phone number
+     */
+    public Contact(String name, long number) {
+        this.name = name;
+        this.number = number;
+    }
+
+    /**
+     * Constructs a <tt>Contact</tt> of a stored line.
+     *
+     * @param name name
+     * @param number phone number
+     * @param line the line in the contact list
+     */
+    private Contact(String name, long number, String line) {
+        this(name, number);
+        this.line = line;
+    }
+
+    /**
+     * <tt>parse(line)</tt> creates the contact of a line of a contact list.
+     * The line is kept as it is, so <tt>toString()</tt> returns the same line.
+     *
+     * @param line row of the txt file
+     * @return the contact, the number is -1 if the line has no number
+     */
+    public static Contact parse(String line) {
+        int i = line.indexOf(':');
+        return new Contact(i < 0 ? line : line.substring(0, i), getNumber(line), line);
+    }
+
+    /**
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return phone number
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * <tt>getNumber(line)</tt> Returns the phone number of a given specific line packed into a long.
+     * The digits after the ':' are parsed directly, so the dashes are skipped without creating
+     * any intermediate objects.
+     *
+     * @param line row of the txt file
+     * @return the phone number, or -1 if the line has no ':' or no number
+     */
+    static long getNumber(CharSequence line) {
+        int i = 0;
+        int length = line.length();
+
+        // Finding the number
+        while (i < length && line.charAt(i) != ':')  i++;
+
+        // Adding the digits to the number. This skips dashes
+        long number = 0;
+        int digits = 0;
+        for (i++; i < length; i++)  {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) return -1;   // does not fit in a long
+                number = number * 10 + (c - '0');
+            }
+        }
+        return digits == 0 ? -1 : number;
+    }
+
+    /**
+     * <tt>formatNumber(number)</tt> formats a 10 digit phone number as 808-779-1466.
+     *
+     * @param number phone number
+     * @return the phone number with dashes
+     */
+    static String formatNumber(long number) {
+        char[] chars = new char[12];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            if (i == 3 || i == 7) {
+                chars[i] = '-';
+            } else {
+                chars[i] = (char) ('0' + number % 10);
+                number /= 10;
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * <tt>formattedDigit(number, i)</tt> returns a character of a phone number formatted as 808-779-1466.
+     *
+     * @param number phone number
+     * @param i index of the character, 0 to 11
+     * @return the character
+     */
+    static char formattedDigit(long number, int i) {
+        if (i == 3 || i == 7) return '-';
+        int digit = i < 3 ? i : i < 7 ? i - 1 : i - 2;  // index of the digit, 0 to 9
+        for (int j = 9; j > digit; j--) number /= 10;
+        return (char) ('0' + number % 10);
+    }
+
+    /**
+     * Compares the lines of the contacts
+     *
+     * @param other the other contact
+     * @return a negative value, zero or a positive value as this line is less than, equal to
+     * or greater than the other line
+     */
+    @Override
+    public int compareTo(Contact other) {
+        return toString().compareTo(other.toString());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Contact && toString().equals(other.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    /**
+     * @return the line of the contact in "Name: 808-779-1466" format
+     */
+    @Override
+    public String toString() {
+        if (line == null) line = name + ": " + formatNumber(number);
+        return line;
+    }
+}
@@ -1,18 +1,32 @@
 // Arachchi K.A.L.O.K.
 // 2018/E/007
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 
 import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Scanner;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 
 /**
@@ -22,7 +36,7 @@ import java.util.regex.Pattern;
  * path should be the absolute path</>
  *
  * <p> If the input followed by the file name is a multi-word name,
- * it prints the corresponding mobile number(s) in the following format
+ * it prints the corresponding mobile number(s) of the names starting with it in the following format
  * (if there are more than one mobile number, it prints all) </>
  *
  * <code>
@@ -41,34 +55,147 @@ import java.util.regex.Pattern;
  * <p> It will add contact details from a json file to the contact_list file when the input arguments are in
  * C\Downloads\contact_list.txt add_json C:\example.json format </p>
  *
+ * <p> If the input followed by the file name is <tt>contains</tt> followed by a name, it prints the
+ * contact details which contain the name anywhere in the line </p>
+ *
+ * <p> If the input followed by the file name is <tt>fuzzy</tt> followed by a name, it prints the
+ * contact details of the similar names, ranked by the edit distance and the Soundex codes </p>
+ *
+ * <p> With the <tt>--log</tt> option new contacts are appended to a small delta segment
+ * (contact_list.txt.delta) which is compacted into the contact list once it is larger than
+ * <tt>--compact-threshold=bytes</tt> </p>
+ *
+ * <p> <tt>C\Downloads\contact_list.txt batch C:\queries.txt</tt> answers a name or a number query per
+ * line of the query file (or the standard input) in a single scan of the contact list. </p>
+ *
+ * <p> <tt>C\Downloads\contact_list.txt serve</tt> starts a daemon which keeps the contact list in memory.
+ * While it is running, the other commands of the same contact list are sent to it over a Unix domain
+ * socket instead of being executed by a new process. With <tt>--watch</tt> the daemon watches the
+ * contact list, and the lines which other programs append to it are indexed as soon as they are written. </p>
+ *
+ * <p> Lookup results are cached in an LRU cache of <tt>--cache-size=n</tt> results, which is kept
+ * between the commands of the daemon. <tt>--cache-stats</tt> prints its hit, miss and eviction counts. </p>
+ *
+ * <p> Every command is recorded as a <tt>contactlist.Operation</tt> JDK Flight Recorder event and in
+ * the latency histograms of the process. <tt>C\Downloads\contact_list.txt stats</tt> prints the histograms
+ * (of the daemon, if it is running) and <tt>--stats</tt> prints them after the command, or when the
+ * daemon is stopped. </p>
+ *
+ * <p> <tt>C\Downloads\contact_list.txt check</tt> reports the malformed lines, the lines which are out of
+ * order and the duplicate numbers in one pass, and <tt>--repair</tt> rewrites the contact list without them. </p>
+ *
+ * <p> Search results are printed in padded columns, or as tab separated lines with <tt>--format=tsv</tt>
+ * or a json array with <tt>--format=json</tt>. <tt>--offset=n</tt> and <tt>--limit=n</tt> print a page
+ * of the results. </p>
+ *
+ * <p> <tt>C\Downloads\contact_list.txt export_binary C:\contact_list.bin</tt> converts the contact list to
+ * the compact binary format and <tt>export_text</tt> converts it back. Binary contact lists are detected by
+ * their header, so every other command works on either format. </p>
+ *
+ * <p> <tt>export_sharded C:\contacts</tt> splits the contact list into <tt>--shards=n</tt> ".txt" shards
+ * in a directory, partitioned by the hash of the number. The directory is accepted wherever the path of
+ * the ".txt" file is: number lookups and inserts use only the shard of the number and name searches are
+ * run on the shards in parallel. </p>
+ *
+ * <p> The commands are executed by a <tt>FileContactStore</tt>, a <tt>BinaryContactStore</tt> for binary
+ * contact lists or a <tt>ShardedContactStore</tt> for sharded contact lists. Applications which embed the contact list use the <tt>ContactStore</tt> API directly. </p>
+ *
  * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
  */
 public class ContactList {
     // Initializing contactList as global variable
     private static File contactList;
+    // Size of the delta segment in bytes which triggers a compaction
+    private static final String DEFAULT_COMPACT_THRESHOLD = "65536";
+    // Number of json contacts which are merged into the contact list at once
+    private static final String DEFAULT_CHUNK_SIZE = "10000";
+    // Number of shards written by export_sharded
+    private static final String DEFAULT_SHARDS = "16";
+    // Maximum number of cached lookup results
+    private static final String DEFAULT_CACHE_SIZE = "4096";
+    // Options given as --name or --name=value
+    private static HashMap<String, String> options = new HashMap<>();
+    // Output of the commands, replaced by the socket of the client in daemon mode
+    private static PrintStream out = System.out;
+    // Store of the contact list which executes the commands
+    private static ContactStore store;
+    // Cache of the lookup results, kept between the commands of the daemon
+    private static LookupCache lookupCache;
+    // Contact list served by the daemon, the daemon executes the commands of no other contact list
+    private static File servedList;
+    // Working directory of the client whose command the daemon executes, relative paths are resolved against it
+    private static File workingDirectory;
 
     /**
      * <tt>printLineByName(name)</tt> method searches and prints the contact details
      * when the name is given.
      *
+     * <p> The contact list is scanned in parallel by <tt>--threads=n</tt> threads
+     * (the number of cores by default). </p>
+     *
+     * @param name name
+     * @throws IOException If there are no file in the path
+     */
+    private static void printLineByName(String name) throws IOException {
+        printContacts(store.findContaining(name));
+    }
+
+    /**
+     * <tt>printLineBySimilarName(name)</tt> method prints the contact details of the names which are
+     * similar to a misspelled name, the closest first.
+     *
+     * @param name the misspelled name
+     * @throws IOException If there are no file in the path
+     */
+    private static void printLineBySimilarName(String name) throws IOException {
+        if (store instanceof ShardedContactStore) {
+            printContacts(((ShardedContactStore) store).findSimilar(name));
+            return;
+        }
+        if (!(store instanceof FileContactStore))
+            throw new IllegalArgumentException("Fuzzy search is not supported for binary contact lists.!");
+        printContacts(((FileContactStore) store).findSimilar(name));
+    }
+
+    /**
+     * <tt>printLineByNamePrefix(name)</tt> method searches and prints the contact details
+     * of the names starting with the given name.
+     *
      * @param name name
-     * @throws FileNotFoundException If there are no file in the path
+     * @throws IOException If there are no file in the path
      */
-    private static void printLineByName(String name) throws FileNotFoundException {
-        Scanner in = new Scanner(contactList);
-        boolean flag = false;   // to print a msg if there is no such name
+    private static void printLineByNamePrefix(String name) throws IOException {
+        printContacts(store.findByName(name));
+    }
 
+    /**
+     * <tt>printContacts(contacts)</tt> prints the contact details of a search in the following format:
+     *
+     * <code>
+     * Mary Anne            808-779-1466
+     * Mary Anne David      843-798-6698
+     * Mary Anne Doe        801-557-2819
+     * </code>
+     *
+     * <p> <tt>--format=tsv</tt> and <tt>--format=json</tt> print tab separated lines or a json array instead.
+     * <tt>--offset=n</tt> skips the first n contact details and <tt>--limit=n</tt> prints at most n. </p>
+     *
+     * @param contacts the matching contacts
+     * @throws IllegalArgumentException If the format or the page is invalid
+     */
+    private static void printContacts(List<Contact> contacts) throws IllegalArgumentException {
+        if (contacts.isEmpty() && options.getOrDefault("format", "padded").equals("padded")) {
+            out.println("ERROR : No such Contact found.!");
+            return;
+        }
         // Prints the details of relevant names
-        while (in.hasNextLine()) {
-            String line = in.nextLine();
-            if (line.contains(name)) {
-                printLine(line);
-                flag = true;
+        try (ContactPrinter printer = new ContactPrinter(out, options.getOrDefault("format", "padded"),
+                Long.parseLong(options.getOrDefault("offset", "0")),
+                Long.parseLong(options.getOrDefault("limit", String.valueOf(Long.MAX_VALUE))))) {
+            for (Contact contact : contacts) {
+                printer.print(contact.toString());
             }
         }
-        if (!flag) System.out.println("ERROR : No such Contact found.!");
-        in.close();
-        return;
     }
 
     /**
@@ -76,156 +203,383 @@ public class ContactList {
      *  when the number is given.
      *
      * @param number phone number
-     * @throws FileNotFoundException If there are no file in the path
-     * @throws StoredDataDuplicateNumberException  If multiple names are found
+     * @throws IOException If there are no file in the path
      */
-    private static void printLineByNumber(String number) throws FileNotFoundException {
-
-        Scanner in = new Scanner(contactList);
-        boolean flag = false; // to detect duplicates
-        String tempLine = null; // to store the line before printing
+    private static void printLineByNumber(String number) throws IOException {
+        List<Contact> contacts = store.findByNumber(Long.parseLong(number));
 
-        // Searches the details of relevant names
-        try {
-            while (in.hasNextLine()) {
-                String line = in.nextLine();
-                if (getNumber(line).contains(number)) {
-                    if (flag)
-                        throw new StoredDataDuplicateNumberException("Duplicate Numbers Found in the Contact List.!");
-                    tempLine = line;
-                    flag = true;
-                    }
-                }
-        } catch(StoredDataDuplicateNumberException e) {
-            System.out.println(e.toString());
-        }
         // Printing the an Error msg
-        if (!flag) {
-            System.out.println("No such Number found.!");
-        } else {
-            System.out.println(tempLine);
+        if (contacts.isEmpty()) {
+            out.println("No such Number found.!");
+            return;
         }
-        in.close();
-        return;
+        if (contacts.size() > 1) {
+            out.println(new StoredDataDuplicateNumberException("Duplicate Numbers Found in the " +
+                    "Contact List.!").toString());
+        }
+        out.println(contacts.get(0));
     }
 
     /**
      * <tt>insertEntry(name, number)</tt> inserts an entry to the contact list inn the corresponding directory.
      *
+     * <p> With the <tt>--log</tt> option the entry is appended to the delta segment instead of rewriting
+     * the contact list. The delta segment is compacted into the contact list in the background once it
+     * is larger than <tt>--compact-threshold=bytes</tt>. </p>
+     *
      * @param name name
      * @param number phone number
-     * @throws FileNotFoundException If there are no file in the path
-     * @throws StoredDataDuplicateNumberException  If the phone number is already available in the .txt file.
+     * @throws IOException If there are no file in the path
+     * @throws InputDuplicateNumberException  If the phone number is already available in the .txt file.
      */
-    private static void insertEntry(String name, String number) throws FileNotFoundException,
-            InputDuplicateNumberException {
-        Scanner sc = new Scanner(contactList);
-        // Creating new string with input arguments
-        String newNumber = number.substring(0,3) + "-" + number.substring(3,6) + "-" + number.substring(6);
-        String newLine = name + ": " + newNumber;
-        // Creating an arrayList to add the new entry and sort
-        ArrayList<String> linesArr = new ArrayList<>();
-
-        // Adding entries to the created arrayList
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
-            // If the number already in the list, <tt>throwing the
-            // InputDuplicateNumberException</tt> exception
-            if (line.contains(newNumber)) {
-                throw new InputDuplicateNumberException("The Number is Already Available in the " +
-                        "Contact List : " + line);
+    private static void insertEntry(String name, String number) throws IOException {
+        store.insert(name, Long.parseLong(number));
+        out.println("Successfully added the contact details to the Contact List.!");
+    }
+
+    /**
+     * <tt>addDetailsFromJson</tt> inserts contact details form a json file to a text file.
+     *
+     * <p> The json file is read one contact at a time with the streaming parser, so it is never held
+     * in memory as a whole. Every contact is validated, and a number which is repeated in the json file
+     * is rejected at once, the numbers being kept in a <tt>LongHashSet</tt>. The valid contacts are sorted
+     * in chunks of <tt>--chunk-size=n</tt> contacts and spilled to temporary runs. Only after the whole
+     * file is parsed the runs are merged and inserted with one rewrite of the contact list, so a json
+     * file which cannot be parsed leaves the contact list unchanged. </p>
+     *
+     * <p> The memory used grows with the json file only by the <tt>LongHashSet</tt> of the numbers,
+     * 8 to 32 bytes per contact. The contacts themselves are held only one chunk at a time. </p>
+     *
+     * @param jsonFile jason file location
+     * @throws IllegalArgumentException when input is not in given format
+     * @throws IOException If the contact list cannot be read or written
+     */
+    private static void addDetailsFromJson(String jsonFile) throws IllegalArgumentException, IOException {
+        createContactListIfAbsent();
+        int chunkSize = Integer.parseInt(options.getOrDefault("chunk-size", DEFAULT_CHUNK_SIZE));
+        LongHashSet numbers = new LongHashSet();
+        ArrayList<File> runs = new ArrayList<>();
+        ArrayList<BufferedReader> readers = new ArrayList<>();
+
+        try {
+            // Sorting the valid contacts chunk by chunk into runs
+            JsonContactHandler handler = new JsonContactHandler(chunkSize, chunk -> {
+                ArrayList<Contact> contacts = new ArrayList<>(chunk.size());
+                for (String[] contact : chunk) {
+                    try {
+                        if (contact[0] == null || contact[1] == null)
+                            throw new IllegalArgumentException("Json object should have a name and a number.!");
+                        validateIName(contact[0]);
+                        validateINumber(contact[1]);
+                        Contact valid = new Contact(contact[0], Long.parseLong(contact[1]));
+                        if (!numbers.add(valid.getNumber()))
+                            throw new InputDuplicateNumberException("The Number is Repeated in the Json file : " + valid);
+                        contacts.add(valid);
+                    } catch (IllegalArgumentException | InputDuplicateNumberException e) {
+                        out.println(e.toString());
+                    }
+                }
+                if (!contacts.isEmpty()) runs.add(spillRun(contacts));
+            });
+
+            // Getting details from Json file
+            try (Reader reader = new BufferedReader(new FileReader(jsonFile), 1 << 16)) {
+                new JSONParser().parse(reader, handler);
+            } catch (FileNotFoundException | ParseException e) {
+                throw new IllegalArgumentException("Input Invalid. Please input Json file path as <C:\\example.json>");
             }
-            linesArr.add(line);
-        }
-        // Adding new entry to the ArrayList
-        linesArr.add(newLine);
-        Collections.sort(linesArr); // Sorting the array in ascending order
 
-        // Creating the PrintWriter class object and clearing the available data on it
-        PrintWriter out = new PrintWriter(contactList.getAbsolutePath());
+            // Inserting the merged runs to the contact list at once
+            for (File run : runs) {
+                readers.add(new BufferedReader(new FileReader(run), 1 << 16));
+            }
+            List<InputDuplicateNumberException> rejects = store.insertSorted(mergeRuns(readers));
+            for (InputDuplicateNumberException e : rejects) {
+                out.println(e.toString());
+            }
+            out.println("Successfully added " + (numbers.size() - rejects.size())
+                    + " contact details to the Contact List.!");
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (BufferedReader reader : readers) reader.close();
+            for (File run : runs) run.delete();
+        }
+    }
 
-        // Printing the sorted array into the text file
-        for (int i = 0; i < linesArr.size(); i++) {
-            out.println(linesArr.get(i));
+    /**
+     * <tt>spillRun(contacts)</tt> sorts contacts and writes them to a temporary run, a contact per line.
+     *
+     * @param contacts the contacts
+     * @return the run file
+     * @throws IOException If the run cannot be written
+     */
+    private static File spillRun(List<Contact> contacts) throws IOException {
+        Collections.sort(contacts);
+        File run = File.createTempFile("contact_list", ".run");
+        run.deleteOnExit();
+        try (PrintWriter runOut = new PrintWriter(new BufferedWriter(new FileWriter(run), 1 << 16))) {
+            for (Contact contact : contacts) runOut.println(contact);
+            if (runOut.checkError()) throw new IOException("Run cannot be written : " + run);
         }
-        out.close();
-        System.out.println("Successfully added the contact details to the Contact List.!");
+        return run;
+    }
+
+    /**
+     * <tt>mergeRuns(readers)</tt> merges sorted runs with a priority queue of the next contact of each run.
+     * The iterator throws an <tt>UncheckedIOException</tt> if a run cannot be read.
+     *
+     * @param readers readers of the runs
+     * @return the contacts of the runs in order
+     */
+    private static Iterator<Contact> mergeRuns(List<BufferedReader> readers) {
+        Contact[] heads = new Contact[readers.size()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, readers.size()),
+                Comparator.comparing(r -> heads[r]));
+        return new Iterator<Contact>() {
+            private boolean started = false;
+
+            @Override
+            public boolean hasNext() {
+                if (!started) {
+                    started = true;
+                    for (int r = 0; r < readers.size(); r++) advance(r);
+                }
+                return !queue.isEmpty();
+            }
 
+            @Override
+            public Contact next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int r = queue.poll();
+                Contact contact = heads[r];
+                advance(r);
+                return contact;
+            }
+
+            private void advance(int r) {
+                try {
+                    String line = readers.get(r).readLine();
+                    if (line != null) {
+                        heads[r] = Contact.parse(line);
+                        queue.add(r);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
     }
 
     /**
-     * <tt>addDetailsFromJson</tt> inserts contact details form a json file to a text file
-     * @param jsonFile jason file location
-     * @throws IllegalArgumentException when input is not in given format
+     * <tt>printBatch(queryFile)</tt> answers the queries of a file, one query per line, in a single
+     * scan of the contact list.
+     *
+     * <p> Every query is classified with the same rules as the command line args. Pending number
+     * queries and name prefixes are kept in hash sets, so every line of the contact list is checked
+     * against all of them at once. The results are printed in the order of the queries, each row
+     * tagged with its query: </p>
+     *
+     * <code>
+     * Mary Anne    Mary Anne                     808-779-1466
+     * 8015572819   Mary Anne Doe                 801-557-2819
+     * </code>
+     *
+     * @param queryFile query file location, "-" for the standard input
+     * @throws IOException If the query file or the contact list cannot be read
      */
-    private static void addDetailsFromJson(String jsonFile) throws IllegalArgumentException {
-        // Getting details from Json file assigning them to a JSON Array
-        JSONParser parser = new JSONParser();
-        FileReader reader = null;
-        Object obj = null;
-        try {
-            reader = new FileReader(jsonFile);
-            obj = parser.parse(reader);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Input Invalid. Please input Json file path as <C:\\example.json>");
+    private static void printBatch(String queryFile) throws IOException {
+        ArrayList<String> queries = new ArrayList<>();
+        ArrayList<String[]> queryDetails = new ArrayList<>();  // null if the query is invalid
+        HashMap<Long, ArrayList<String>> numberResults = new HashMap<>();
+        HashMap<String, ArrayList<String>> nameResults = new HashMap<>();
+        HashMap<String, ArrayList<String>> containsResults = new HashMap<>();
+        TreeSet<Integer> nameLengths = new TreeSet<>();
+
+        // Reading and classifying the queries
+        Reader reader = queryFile.equals("-") ? new InputStreamReader(System.in) : new FileReader(queryFile);
+        try (BufferedReader in = new BufferedReader(reader)) {
+            String query;
+            while ((query = in.readLine()) != null) {
+                query = query.trim();
+                if (query.isEmpty()) continue;
+                String[] tokens = query.split("\\s+");
+                String[] queryArgs = new String[tokens.length + 1];
+                queryArgs[0] = contactList.getPath();
+                System.arraycopy(tokens, 0, queryArgs, 1, tokens.length);
+                String[] details;
+                try {
+                    details = separateDetails(queryArgs);
+                } catch (IOException e) {
+                    details = new String[] {null, e.toString(), "error"};
+                }
+                if (details[2] == "number") {
+                    numberResults.putIfAbsent(Long.parseLong(details[1]), new ArrayList<>());
+                } else if (details[2] == "name") {
+                    nameResults.putIfAbsent(details[1], new ArrayList<>());
+                    nameLengths.add(details[1].length());
+                } else if (details[2] == "contains") {
+                    containsResults.putIfAbsent(details[1], new ArrayList<>());
+                } else if (details[2] != "error") {
+                    details = new String[] {null, "ERROR : Only name and number queries are supported " +
+                            "in batch mode.!", "error"};
+                }
+                queries.add(query);
+                queryDetails.add(details);
+            }
         }
-        JSONArray arrJson = (JSONArray)obj;
 
-        // Inserting Details to Text file
-        arrJson.forEach(el -> {
-            JSONObject jObj = (JSONObject)el;
-            try {
-                insertEntry((String)jObj.get("name"), (String)jObj.get("number"));
-            } catch (FileNotFoundException | InputDuplicateNumberException e) {
-                System.out.println(e.toString());
+        // Scanning the contact list and the delta segment once
+        try (Stream<Contact> contacts = store.stream()) {
+            Iterator<Contact> iterator = contacts.iterator();
+            while (iterator.hasNext()) {
+                Contact contact = iterator.next();
+                String next = contact.toString();
+
+                ArrayList<String> results = numberResults.get(contact.getNumber());
+                if (results != null) results.add(next);
+                for (int length : nameLengths) {
+                    if (length > next.length()) break;
+                    results = nameResults.get(next.substring(0, length));
+                    if (results != null) results.add(next);
+                }
+                for (Map.Entry<String, ArrayList<String>> entry : containsResults.entrySet()) {
+                    if (next.contains(entry.getKey())) entry.getValue().add(next);
+                }
             }
-        });
+        }
+
+        // Printing the results in the order of the queries
+        ContactPrinter printer = new ContactPrinter(out, "padded", 0, Long.MAX_VALUE);
+        for (int i = 0; i < queries.size(); i++) {
+            String[] details = queryDetails.get(i);
+            String tag = queries.get(i) + "\t";
+            printer.flush();    // the messages are printed directly to the output
+            if (details[2] == "error") {
+                out.println(tag + details[1]);
+                continue;
+            }
+            ArrayList<String> results = details[2] == "number" ? numberResults.get(Long.parseLong(details[1]))
+                    : details[2] == "name" ? nameResults.get(details[1]) : containsResults.get(details[1]);
+            if (results.isEmpty()) {
+                out.println(tag + (details[2] == "number" ? "No such Number found.!"
+                        : "ERROR : No such Contact found.!"));
+            } else if (details[2] == "number" && results.size() > 1) {
+                out.println(tag + new StoredDataDuplicateNumberException("Duplicate Numbers Found in the " +
+                        "Contact List.!").toString());
+                printer.print(tag, results.get(0));
+            } else {
+                for (String result : results) {
+                    printer.print(tag, result);
+                }
+            }
+        }
+        printer.close();
     }
 
     /**
-     * <tt>getNumber(line)</tt> Returns the phone number with pure digits of a given specific line
-     * This removes dashes in the phone number
+     * <tt>checkContactList()</tt> prints every malformed line, every line which is out of order and every
+     * group of lines with the same number, with the line numbers, followed by a summary.
      *
-     * @param line row of the txt file
-     * @return the phone number with pure digits
+     * <p> With the <tt>--repair</tt> option the delta segment is compacted first and the contact list is
+     * rewritten without the malformed lines and the duplicates (the first line of a number is kept),
+     * in "Name: 808-779-1466" format and in sorted order. </p>
+     *
+     * @throws IOException If the contact list cannot be read or written
      */
-    private static String getNumber(String line) {
-        int i = 0;
-        ArrayList<String> numArr = new ArrayList<>();
+    private static void checkContactList() throws IOException {
+        if (!(store instanceof FileContactStore))
+            throw new IllegalArgumentException("Only .txt contact lists can be checked, check the shards one by one.!");
+        ContactListCheck check = new ContactListCheck(contactList, out);
+        if (!options.containsKey("repair")) {
+            check.check();
+            out.println(check);
+            return;
+        }
 
-        // Finding the number and copy it to another string
-        while (line.charAt(i) != ':')  i++;
-        String numberWithDashes = line.substring(i + 2);
+        // Folding the delta segment, so it is checked and repaired as well
+        if (DeltaSegment.deltaFile(contactList).exists()) ((FileContactStore) store).compact();
+        ContactListLock lock = ContactListLock.acquire(contactList);
+        try {
+            check.check();
+            out.println(check);
+            if (check.hasProblems())
+                out.println("Repaired the Contact List : " + check.repair() + " contact details");
+        } finally {
+            lock.close();
+        }
+    }
 
-        // Adding the numbers to the ArrayLists. This removes dashes
-        for (i = 0; i < numberWithDashes.length(); i++)  {
-            if (Character.isDigit(numberWithDashes.charAt(i))) numArr.add(Character
-                    .toString(numberWithDashes.charAt(i)));
+    /**
+     * <tt>exportContactList(target, format)</tt> writes all the contact details to another file
+     * in the binary or the text format, or to a directory of <tt>--shards=n</tt> shards (16 by default).
+     * The contact list is not changed.
+     *
+     * <p> Only contact details in "Name: 808-779-1466" format can be stored in the binary format,
+     * so converting a text contact list to the binary format and back gives the same file. </p>
+     *
+     * @param target the file which is to be written
+     * @param format "binary", "text" or "sharded"
+     * @throws IOException If the contact list cannot be read or the target cannot be written
+     */
+    private static void exportContactList(String target, String format) throws IOException {
+        File targetFile = new File(target);
+        if (targetFile.getAbsoluteFile().equals(contactList.getAbsoluteFile()))
+            throw new IllegalArgumentException("Export target is the contact list.!");
+        int count;
+        ContactListLock lock = ContactListLock.acquire(targetFile);
+        try (Stream<Contact> contacts = store.stream()) {
+            if (format == "binary") {
+                count = BinaryContactStore.write(targetFile, contacts.iterator());
+            } else if (format == "sharded") {
+                count = ShardedContactStore.write(targetFile, Integer.parseInt(options.getOrDefault("shards",
+                        DEFAULT_SHARDS)), contacts.iterator());
+            } else {
+                count = FileContactStore.write(targetFile, contacts.iterator());
+            }
+        } finally {
+            lock.close();
         }
-        // Creating the string and returning the number as a string
-        String number = String.join("", numArr);
-        return number;
+        out.println("Exported " + count + " contact details to " + targetFile.getAbsolutePath());
     }
 
     /**
-     * <tt>printLine(line)</tt> prints a entry in the following format:
+     * <tt>createContactListIfAbsent()</tt> creates the directory and the .txt file
+     * if there is no .txt file in the given directory.
      *
-     * <code>
-     * Mary Anne            808-779-1466
-     * Mary Anne David      843-798-6698
-     * Mary Anne Doe        801-557-2819
-     * </code>
+     * @throws IOException If the file cannot be created
+     */
+    private static void createContactListIfAbsent() throws IOException {
+        if (!contactList.exists()) {
+            Path path = Paths.get(contactList.getAbsoluteFile().getParentFile().getAbsolutePath());
+            Files.createDirectories(path);
+            contactList.createNewFile();
+            out.println("File doesnt exist. Created new file");
+        }
+    }
+
+    /**
+     * <tt>extractOptions(args)</tt> removes the options from the command line args and stores
+     * them in <tt>options</tt>. Options are given as <tt>--name</tt> or <tt>--name=value</tt>.
      *
-     * @param line the line which is to be printed
+     * @param args command line args
+     * @return command line args without the options
      */
-    private static void printLine(String line) {
-        int i = 0;
-        while (line.charAt(i) != ':')  i++;
-        String name = line.substring(0, i);
-        String number = line.substring(i + 2);
-        // Maximum name length is 30 characters, Maximum number length is 20 characters
-        System.out.printf("%-30s%-20s%-1s", name, number, "\n");
-        return;
+    private static String[] extractOptions(String[] args) {
+        ArrayList<String> remaining = new ArrayList<>(args.length);
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int i = arg.indexOf('=');
+                if (i < 0) {
+                    options.put(arg.substring(2), "");
+                } else {
+                    options.put(arg.substring(2, i), arg.substring(i + 1));
+                }
+            } else {
+                remaining.add(arg);
+            }
+        }
+        return remaining.toArray(new String[0]);
     }
 
     /**
@@ -236,9 +590,10 @@ public class ContactList {
      * @return string array which is the path in index 0
      */
     private static String[] separatePath(String[] args) throws InvalidFileNameException, InsufficientInputsException {
-        // Finding .txt file
+        // Finding .txt file, .bin file of a binary contact list or the directory of a sharded contact list
         int i = 0;
-        while (i < args.length && !args[i].contains(".txt")) {
+        while (i < args.length && !args[i].contains(".txt") && !args[i].contains(".bin")
+                && !ShardedContactStore.isSharded(new File(String.join(" ", Arrays.copyOfRange(args, 0, i + 1))))) {
             i++;
         }
         if (i == args.length)
@@ -281,7 +636,7 @@ public class ContactList {
      * @param name name
      * @return Capitalized name
      */
-    private static String capitalizeName(String name) {
+    static String capitalizeName(String name) {
         char[] charArr = name.toLowerCase().toCharArray();
         boolean flag = false; // to track the spaces
         // Capitalizing the fist letter of every word
@@ -313,6 +668,23 @@ public class ContactList {
      *
      * <p> If the following input is <tt>add_json</tt>, the it returns [path, json_file_name, "json"]</p>
      *
+     * <p> If the following input is <tt>contains</tt> followed by a name, it returns [path, name, "contains"]</p>
+     *
+     * <p> If the following input is <tt>fuzzy</tt> followed by a name, it returns [path, name, "fuzzy"]</p>
+     *
+     * <p> If the following input is <tt>export_binary</tt>, <tt>export_text</tt> or <tt>export_sharded</tt>,
+     * it returns [path, target_file_name, "binary"], [path, target_file_name, "text"] or
+     * [path, target_directory_name, "sharded"]</p>
+     *
+     * <p> If the following input is <tt>serve</tt>, it returns [path, null, "serve"]</p>
+     *
+     * <p> If the following input is <tt>stats</tt>, it returns [path, null, "stats"]</p>
+     *
+     * <p> If the following input is <tt>check</tt>, it returns [path, null, "check"]</p>
+     *
+     * <p> If the following input is <tt>batch</tt>, it returns [path, query_file_name, "batch"].
+     * The query file name is "-" for the standard input</p>
+     *
      * @param args command line args
      * @return String array with length 3.
      */
@@ -338,6 +710,60 @@ public class ContactList {
             throw new IllegalArgumentException("Invalid Input Format");
         }
 
+        // If the contact list is to be converted to the binary or the text format
+        if (separatedPathArr[1].equals("export_binary") || separatedPathArr[1].equals("export_text")
+                || separatedPathArr[1].equals("export_sharded")) {
+            if (separatedPathArr.length < 3)
+                throw new InsufficientInputsException("Inputs are not sufficient.!");
+            allSeparatedArr[0] = path;
+            allSeparatedArr[1] = separatedPathArr[2];
+            allSeparatedArr[2] = separatedPathArr[1].equals("export_binary") ? "binary"
+                    : separatedPathArr[1].equals("export_sharded") ? "sharded" : "text";
+            return allSeparatedArr;
+        }
+
+        // If the queries are to be read from a file or the standard input
+        if (separatedPathArr[1].equals("batch")) {
+            allSeparatedArr[0] = path;
+            allSeparatedArr[1] = separatedPathArr.length > 2 ? separatedPathArr[2] : "-";
+            allSeparatedArr[2] = "batch";
+            return allSeparatedArr;
+        }
+
+        // If the contact list is to be served by a daemon
+        if (separatedPathArr[1].equals("serve")) {
+            allSeparatedArr[0] = path;
+            allSeparatedArr[2] = "serve";
+            return allSeparatedArr;
+        }
+
+        // If the latency histograms are to be printed
+        if (separatedPathArr[1].equals("stats")) {
+            allSeparatedArr[0] = path;
+            allSeparatedArr[2] = "stats";
+            return allSeparatedArr;
+        }
+
+        // If the integrity of the contact list is to be checked
+        if (separatedPathArr[1].equals("check")) {
+            allSeparatedArr[0] = path;
+            allSeparatedArr[2] = "check";
+            return allSeparatedArr;
+        }
+
+        // If the name is to be searched anywhere in the contact details, or searched as a misspelled name
+        if (separatedPathArr[1].equals("contains") || separatedPathArr[1].equals("fuzzy")) {
+            if (separatedPathArr.length < 3)
+                throw new InsufficientInputsException("Inputs are not sufficient.!");
+            String name = extractName(Arrays.copyOfRange(separatedPathArr, 1, separatedPathArr.length),
+                    separatedPathArr.length - 2); // getting name
+            validateIName(name);
+            allSeparatedArr[0] = path;
+            allSeparatedArr[1] = name;
+            allSeparatedArr[2] = separatedPathArr[1].equals("contains") ? "contains" : "fuzzy";
+            return allSeparatedArr;
+        }
+
         // Assigning data to the returning array according to the format
         if (Character.isDigit(separatedPathArr[separatedPathArr.length - 1].charAt(0))) {
             validateINumber(separatedPathArr[separatedPathArr.length - 1]);
@@ -423,6 +849,13 @@ public class ContactList {
      * <p> It will add contact details from a json file to the contact_list file when the input arguments are in
      * C\Downloads\contact_list.txt add_json C:\example.json format
      *
+     * <p> If the input followed by the file name is <tt>contains</tt> followed by a name, it prints the
+     * contact details which contain the name anywhere in the line
+     *
+     * <p> With the <tt>--log</tt> option new contacts are appended to the delta segment
+     *
+     * <p> If a daemon is serving the contact list, the command is sent to the daemon
+     *
      *  @param args command line arguments.
      *              First provide Absolute path of the .txt file.
      *
@@ -434,262 +867,231 @@ public class ContactList {
      * @throws IOException If there are no file in the path
      */
     public static void main(String[] args) throws IOException {
+        // Sending the args to the daemon of the contact list if it is running
+        if (forwardToDaemon(args)) return;
+        run(args);
+    }
+
+    /**
+     * <tt>run(args)</tt> executes a command and prints the result to <tt>out</tt>.
+     *
+     * @param args command line arguments
+     */
+    private static void run(String[] args) {
+        options.clear();
         try {
-            String[] separatedDetails = separateDetails(args);
+            String[] separatedDetails = separateDetails(extractOptions(args));
+            // Resolving the paths against the working directory of the client in daemon mode
+            separatedDetails[0] = resolvePath(separatedDetails[0]);
+            if (separatedDetails[2] == "json" || separatedDetails[2] == "binary" || separatedDetails[2] == "text"
+                    || separatedDetails[2] == "sharded") {
+                separatedDetails[1] = resolvePath(separatedDetails[1]);
+            }
             contactList = new File(separatedDetails[0]);    // Creating File obj
+            if (servedList != null && !contactList.getCanonicalFile().equals(servedList))
+                throw new IllegalArgumentException("This daemon serves only " + servedList);
+            if (lookupCache == null)
+                lookupCache = new LookupCache(Integer.parseInt(options.getOrDefault("cache-size", DEFAULT_CACHE_SIZE)));
+            if (BinaryContactStore.isBinary(contactList)) {   // Binary contact lists are detected by the header
+                store = new BinaryContactStore(contactList);
+            } else if (ShardedContactStore.isSharded(contactList)) {  // and sharded ones by the manifest
+                ShardedContactStore shardedStore = new ShardedContactStore(contactList);
+                shardedStore.setAppendToLog(options.containsKey("log"));
+                shardedStore.setCompactThreshold(Long.parseLong(options.getOrDefault("compact-threshold",
+                        DEFAULT_COMPACT_THRESHOLD)));
+                shardedStore.setThreads(Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))));
+                shardedStore.setLookupCache(lookupCache);
+                store = shardedStore;
+            } else {
+                FileContactStore fileStore = new FileContactStore(contactList);
+                fileStore.setAppendToLog(options.containsKey("log"));
+                fileStore.setCompactThreshold(Long.parseLong(options.getOrDefault("compact-threshold",
+                        DEFAULT_COMPACT_THRESHOLD)));
+                fileStore.setThreads(Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))));
+                fileStore.setLookupCache(lookupCache);
+                store = fileStore;
+            }
 
 
-            // Finding the number/ name or adding the contact details to the contact list
-            if (separatedDetails[2] == "name") {        // If the input followed by the file name is a multi-word name
-                printLineByName(separatedDetails[1]);   // Prints the contact details of the corresponding name
-
-            } else if (separatedDetails[2] == "number") {   // If the following inputs is a name followed by a number
-                printLineByNumber(separatedDetails[1]);     // Prints the contact details of the corresponding number
-
-            } else if(separatedDetails[2] == "json") {
-                addDetailsFromJson(separatedDetails[1]);
-            } else {    // If the following inputs is a name followed by a number
-                // Creating the directory and a .txt file if theres is no .txt file in the given directory
-                if (!contactList.exists()) {
-                    Path path = Paths.get(contactList.getParentFile().getAbsolutePath());
-                    Files.createDirectories(path);
-                    contactList.createNewFile();
-                    System.out.println("File doesnt exist. Created new file");
+            // Measuring the command as one operation, the lookups of the store are a part of it
+            String operation = Character.isDigit(separatedDetails[2].charAt(0)) ? "insert" : separatedDetails[2];
+            boolean measured = operation != "serve" && operation != "stats";
+            if (measured) OperationStats.begin(operation, contactList.getPath(), separatedDetails[1]);
+            try {
+                // Finding the number/ name or adding the contact details to the contact list
+                if (separatedDetails[2] == "name") {        // If the input followed by the file name is a multi-word name
+                    printLineByNamePrefix(separatedDetails[1]); // Prints the contact details starting with the name
+
+                } else if (separatedDetails[2] == "contains") { // If the name is searched anywhere in the lines
+                    printLineByName(separatedDetails[1]);   // Prints the contact details containing the name
+
+                } else if (separatedDetails[2] == "fuzzy") {    // If the name may be misspelled
+                    printLineBySimilarName(separatedDetails[1]);    // Prints the closest contact details first
+
+                } else if (separatedDetails[2] == "number") {   // If the following inputs is a name followed by a number
+                    printLineByNumber(separatedDetails[1]);     // Prints the contact details of the corresponding number
+
+                } else if(separatedDetails[2] == "json") {
+                    addDetailsFromJson(separatedDetails[1]);
+                } else if (separatedDetails[2] == "binary" || separatedDetails[2] == "text"
+                        || separatedDetails[2] == "sharded") {
+                    exportContactList(separatedDetails[1], separatedDetails[2]);
+                } else if (separatedDetails[2] == "serve") {    // Serving the contact list until the process is killed
+                    serve();
+                } else if (separatedDetails[2] == "batch") {    // Answering the queries of a file in one scan
+                    printBatch(separatedDetails[1]);
+                } else if (separatedDetails[2] == "check") {    // Checking the contact list in one pass
+                    checkContactList();
+                } else if (separatedDetails[2] == "stats") {    // Printing the latency histograms of the process
+                    out.print(OperationStats.dump());
+                } else {    // If the following inputs is a name followed by a number
+                    // Creating the directory and a .txt file if theres is no .txt file in the given directory
+                    createContactListIfAbsent();
+                    // Inserting the contact details to the contact list
+                    insertEntry(separatedDetails[1], separatedDetails[2]);
                 }
-                // Inserting the contact details to the contact list
-                insertEntry(separatedDetails[1], separatedDetails[2]);
+            } finally {
+                if (measured) OperationStats.end();
             }
+            if (options.containsKey("cache-stats")) out.println("Lookup cache : " + lookupCache);
+            if (options.containsKey("stats") && operation != "stats") out.print(OperationStats.dump());
         } catch(Exception e) {
-            System.out.println(e.toString());
+            out.println(e.toString());
         } finally {
-            System.out.println("Thank you for using contact list app");
+            out.println("Thank you for using contact list app");
         }
 
     }
 
-}
-
-/** ----- Exceptions -----
-
-/**
- * <tt>DuplicateNumberException</tt> extends IOException.
- * This exception is thrown If duplicate contact numbers are found.
- *
- */
-
-class DuplicateNumberException extends IOException {
     /**
-     * Constructs a <tt>DuplicateNumberException</tt> with default error detail message.
+     * <tt>serve()</tt> runs the daemon of the contact list.
      *
-     */
-    public DuplicateNumberException() {}
-
-    /**
-     * Constructs a <tt>DuplicateNumberException</tt> with the
-     * specified detail message.
-     *
-     * @param message The detailed message.
-     */
-    public DuplicateNumberException(String message) {
-        super(message);
-    }
-}
-
-/**
- * <tt>IllegalArgumentException</tt> extends IOException.
- * This exception is thrown If invalid arguments are found.
- *
- */
-
-class IllegalArgumentException extends IOException {
-    /**
-     * Constructs a <tt>IllegalArgumentException</tt> with default error detail message.
-     *
-     */
-    public IllegalArgumentException() {}
-
-    /**
-     * Constructs a <tt>IllegalArgumentException</tt> with the
-     * specified detail message.
-     *
-     * @param message The detailed message.
-     */
-    public IllegalArgumentException(String message) {
-        super(message);
-    }
-}
-
-
-/**
- * <tt>MissingArgumentsException</tt> extends IOException.
- * This exception is thrown If there are missing arguments
- *
- */
-
-class MissingArgumentsException extends IOException {
-    /**
-     * Constructs a <tt>MissingArgumentsException</tt> with default error detail message.
-     *
-     */
-    public MissingArgumentsException() {}
-
-    /**
-     * Constructs a <tt>MissingArgumentsException</tt> with the
-     * specified detail message.
-     *
-     * @param message The detailed message.
-     */
-    public MissingArgumentsException(String message) {
-        super(message);
-    }
-}
-
-
-/**
- * <tt>StoredDataDuplicateNumberException</tt> extends IOException.
- * This exception is thrown If duplicate numbers are found in the contact list.
- *
- */
-
-class StoredDataDuplicateNumberException extends DuplicateNumberException {
-    /**
-     * Constructs a <tt>StoredDataDuplicateNumberException</tt> with default error detail message.
+     * <p> The daemon listens on a Unix domain socket next to the contact list
+     * (contact_list.txt.sock) and executes the commands sent by <tt>forwardToDaemon</tt> with the
+     * same argument format as the command line. Relative paths are resolved against the working
+     * directory sent by the client, and commands of other contact lists are refused. The number index and the mapped contact list stay
+     * in memory between the commands, so they cost neither JVM startup nor a cold parse.
+     * Commands are executed one at a time. </p>
      *
-     */
-    public StoredDataDuplicateNumberException() {}
-
-    /**
-     * Constructs a <tt>StoredDataDuplicateNumberException</tt> with the
-     * specified detail message.
+     * <p> With <tt>--watch</tt> a <tt>ContactListWatcher</tt> applies the changes of the contact list
+     * to the number index in the background, so a command after an append does not re-index. </p>
      *
-     * @param message The detailed message.
+     * @throws IOException If the socket cannot be opened
      */
-    public StoredDataDuplicateNumberException(String message) {
-        super(message);
-    }
-}
-
-
-/**
- * <tt>InputDuplicateNumberException</tt> extends IOException.
- * This exception is thrown when duplicate numbers are inputted.
- *
- */
+    private static void serve() throws IOException {
+        servedList = contactList.getCanonicalFile();
+        Path socketPath = socketFile(contactList).toPath();
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            socketPath.toFile().deleteOnExit();
+
+            // Loading the contact list and the index to the memory
+            createContactListIfAbsent();
+            if (store instanceof FileContactStore) {
+                NumberIndex.open(contactList);
+                if (contactList.length() <= Integer.MAX_VALUE) ((FileContactStore) store).mapContactList().load();
+                // Indexing the changes of the contact list while it is served
+                if (options.containsKey("watch")) new ContactListWatcher(contactList, out);
+            }
+            out.println("Serving " + contactList.getAbsolutePath() + " on " + socketPath);
 
-class InputDuplicateNumberException extends DuplicateNumberException {
-    /**
-     * Constructs a <tt>InputDuplicateNumberException</tt> with default error detail message.
-     *
-     */
-    public InputDuplicateNumberException() {}
+            PrintStream console = out;
+            // Printing the latency histograms when the daemon is stopped
+            if (options.containsKey("stats")) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> console.print(OperationStats.dump())));
+            }
+            while (true) {
+                try (SocketChannel client = server.accept()) {
+                    // Reading the working directory of the client and the args of the command
+                    DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+                    File clientDirectory = new File(in.readUTF());
+                    String[] args = new String[in.readInt()];
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = in.readUTF();
+                    }
 
-    /**
-     * Constructs a <tt>InputDuplicateNumberException</tt> with the
-     * specified detail message.
-     *
-     * @param message The detailed message.
-     */
-    public InputDuplicateNumberException(String message) {
-        super(message);
+                    // Executing the command and sending the output to the client
+                    out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(client)), false,
+                            StandardCharsets.UTF_8);
+                    workingDirectory = clientDirectory;
+                    try {
+                        run(args);
+                    } finally {
+                        out.flush();
+                        out = console;
+                        workingDirectory = null;
+                    }
+                } catch (IOException e) {
+                    out.println(e.toString());
+                }
+            }
+        }
     }
-}
 
-/**
- * <tt>InvalidNameException</tt> extends IOException.
- * This exception is thrown If the name includes of symbols and numbers
- *
- */
-
-class InvalidNameException extends IllegalArgumentException {
     /**
-     * Constructs a <tt>InvalidNameException</tt> with default error detail message.
+     * <tt>forwardToDaemon(args)</tt> sends the working directory and the command line args to the
+     * daemon of the contact list and prints its response.
      *
+     * @param args command line arguments
+     * @return false if there is no daemon running for the contact list, so the command should be
+     * executed directly
      */
-    public InvalidNameException() {}
-
-    /**
-     * Constructs a <tt>InvalidNameException</tt> with the
-     * specified detail message.
-     *
-     * @param message The detailed message.
-     */
-    public InvalidNameException(String message) {
-        super(message);
+    private static boolean forwardToDaemon(String[] args) {
+        File socketFile;
+        try {
+            String[] separatedDetails = separateDetails(extractOptions(args));
+            // The daemon cannot read the standard input of the client
+            if (separatedDetails[2] == "serve" || separatedDetails[2] == "batch") return false;
+            socketFile = socketFile(new File(separatedDetails[0]));
+        } catch (Exception e) {
+            return false;   // invalid inputs are reported by the direct execution
+        } finally {
+            options.clear();
+        }
+        if (!socketFile.exists()) return false;
+
+        try (SocketChannel daemon = SocketChannel.open(UnixDomainSocketAddress.of(socketFile.toPath()))) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(daemon)));
+            request.writeUTF(new File("").getAbsolutePath());
+            request.writeInt(args.length);
+            for (String arg : args) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+            daemon.shutdownOutput();
+
+            // Printing the response
+            Channels.newInputStream(daemon).transferTo(out);
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            return false;   // the daemon is not running
+        }
     }
-}
-
-/**
- * <tt>InvalidNumberException</tt> extends IOException.
- * This exception is thrown If the number includes symbols and letters or
- * number of digits not 10
- *
- */
 
-class InvalidNumberException extends IllegalArgumentException {
     /**
-     * Constructs a <tt>InvalidNumberException</tt> with default error detail message.
+     * <tt>resolvePath(path)</tt> resolves a relative path against the working directory of the client
+     * whose command the daemon executes. Otherwise the path is returned as it is.
      *
+     * @param path path given in the command line
+     * @return the path to be used by this process
      */
-    public InvalidNumberException() {}
-
-    /**
-     * Constructs a <tt>InvalidNumberException</tt> with the
-     * specified detail message.
-     *
-     * @param message The detailed message.
-     */
-    public InvalidNumberException(String message) {
-        super(message);
+    private static String resolvePath(String path) {
+        if (workingDirectory == null || new File(path).isAbsolute()) return path;
+        return new File(workingDirectory, path).getPath();
     }
-}
 
-/**
- * <tt>InsufficientInputsException</tt> extends IOException.
- * This exception is thrown when the app receives less than 2 arguments
- *
- */
-
-class InsufficientInputsException extends MissingArgumentsException {
     /**
-     * Constructs a <tt>InsufficientInputsException</tt> with default error detail message.
+     * <tt>socketFile(contactList)</tt> returns the socket file of the daemon of a contact list.
      *
+     * @param contactList contact list
+     * @return the socket file
      */
-    public InsufficientInputsException() {}
-
-    /**
-     * Constructs a <tt>InsufficientInputsException</tt> with the
-     * specified detail message.
-     *
-     * @param message The detailed message.
-     */
-    public InsufficientInputsException(String message) {
-        super(message);
+    private static File socketFile(File contactList) {
+        return new File(contactList.getAbsolutePath() + ".sock");
     }
-}
-
-/**
- * <tt>InvalidFileNameException</tt> extends IOException.
- * This exception is thrown If The first input is not a proper name of a text file
- *
- */
-
-class InvalidFileNameException extends MissingArgumentsException {
-    /**
-     * Constructs a <tt>InvalidFileNameException</tt> with default error detail message.
-     *
-     */
-    public InvalidFileNameException() {}
 
-    /**
-     * Constructs a <tt>InvalidFileNameException</tt> with the
-     * specified detail message.
-     *
-     * @param message The detailed message.
-     */
-    public InvalidFileNameException(String message) {
-        super(message);
-    }
 }
-
-
-
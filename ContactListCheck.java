@@ -0,0 +1,463 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * <tt>ContactListCheck</tt> checks the integrity of a ".txt" contact list in one pass and repairs it.
+ *
+ * <p> Every line is checked to have a name and a 10 digit number, to be in "Name: 808-779-1466" format
+ * and not to be less than the previous line, so the binary searches and the merges of the inserts find
+ * the lines they expect. A line such as "Mary Anne :808 779 1466" is well formed but written differently,
+ * it is compared in the "Name: 808-779-1466" format. The number of
+ * every line is packed with its line number into a long, (number &lt;&lt; 29) | line, and the longs are
+ * sorted in runs of <tt>RUN_SIZE</tt> which are spilled to temporary files and merged, so the
+ * duplicate numbers are found in bounded memory however large the contact list is. </p>
+ *
+ * <p> <tt>repair</tt> writes a cleaned contact list in "Name: 808-779-1466" format, without the malformed
+ * lines and with only the first line of every duplicate number. The line numbers which are left out are
+ * spilled in sorted runs as well. If the lines are out of order, they are sorted in runs of
+ * <tt>LINE_RUN_SIZE</tt> lines in the same way. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class ContactListCheck {
+    // Number of low bits of a packed long which hold the line number
+    private static final int LINE_BITS = 29;
+    private static final long LINE_MASK = (1L << LINE_BITS) - 1;
+    // Number of digits of a phone number
+    private static final int NUMBER_DIGITS = 10;
+    // Number of packed longs which are sorted in memory at once, 32MB
+    private static final int RUN_SIZE = 1 << 22;
+    // Number of lines which are sorted in memory at once by a repair
+    private static final int LINE_RUN_SIZE = 1 << 20;
+
+    private final File contactList;
+    private final PrintStream out;
+    private long lines = 0;
+    private long malformed = 0;
+    private long reformatted = 0;
+    private long unsorted = 0;
+    private long duplicateNumbers = 0;
+    // Line numbers which are left out by a repair: the malformed lines and the duplicates after the first.
+    // They are spilled in sorted runs of RUN_SIZE line numbers
+    private long[] dropped = new long[16];
+    private int droppedCount = 0;
+    private final ArrayList<File> droppedRuns = new ArrayList<>();
+
+    /**
+     * Constructs a <tt>ContactListCheck</tt>.
+     *
+     * @param contactList the ".txt" contact list
+     * @param out output of the problems which are found
+     */
+    ContactListCheck(File contactList, PrintStream out) {
+        this.contactList = contactList;
+        this.out = out;
+    }
+
+    /**
+     * <tt>check()</tt> reads the contact list once and prints every malformed line, every line which
+     * is out of order and every group of lines with the same number, with the line numbers.
+     *
+     * @throws IOException If the contact list cannot be read
+     */
+    void check() throws IOException {
+        ArrayList<File> runs = new ArrayList<>();
+        long[] run = new long[(int) Math.min(contactList.length() / 16 + 16, RUN_SIZE)];
+        int runLength = 0;
+        try (BufferedReader in = new BufferedReader(new FileReader(contactList), 1 << 16)) {
+            String previous = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines++;
+                if (lines > LINE_MASK) throw new IOException("Contact List is too large to be checked");
+
+                // Checking the format
+                String canonical = canonical(line);
+                if (canonical == null) {
+                    malformed++;
+                    drop(lines);
+                    out.println("Line " + lines + " is malformed : " + line);
+                    continue;
+                }
+                if (!canonical.equals(line)) {
+                    reformatted++;
+                    out.println("Line " + lines + " is not in \"Name: 808-779-1466\" format : " + line);
+                }
+                line = canonical;
+                long number = Contact.getNumber(line);
+
+                // Checking the order
+                if (previous != null && line.compareTo(previous) < 0) {
+                    unsorted++;
+                    out.println("Line " + lines + " is out of order : " + line);
+                }
+                previous = line;
+
+                // Collecting the packed number, the full runs are sorted and spilled
+                if (runLength == run.length) {
+                    if (run.length < RUN_SIZE) {
+                        run = Arrays.copyOf(run, Math.min(run.length * 2, RUN_SIZE));
+                    } else {
+                        runs.add(spill(run, runLength));
+                        runLength = 0;
+                    }
+                }
+                run[runLength++] = number << LINE_BITS | lines;
+            }
+            OperationStats.addLinesScanned(lines);
+            OperationStats.addBytesRead(contactList.length());
+            Arrays.sort(run, 0, runLength);
+            findDuplicates(runs, run, runLength);
+        } finally {
+            for (File file : runs) file.delete();
+        }
+        Arrays.sort(dropped, 0, droppedCount);
+    }
+
+    /**
+     * <tt>repair()</tt> rewrites the contact list without the malformed lines and the duplicates which
+     * are found by <tt>check</tt>, in "Name: 808-779-1466" format and in sorted order. The number index
+     * is rebuilt. The caller should hold the <tt>ContactListLock</tt> and the delta segment should be
+     * compacted before the check.
+     *
+     * @return number of lines of the repaired contact list
+     * @throws IOException If the contact list cannot be read or written
+     */
+    long repair() throws IOException {
+        ArrayList<File> runs = new ArrayList<>();
+        ArrayList<BufferedReader> runReaders = new ArrayList<>();
+        ArrayList<DataInputStream> droppedReaders = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(contactList), 1 << 16)) {
+            PrimitiveIterator.OfLong drops = droppedLines(droppedReaders);
+            Iterator<String> kept = new Iterator<String>() {
+                private long lineNumber = 0;
+                private long nextDropped = drops.hasNext() ? drops.nextLong() : -1;
+                private String next = advance();
+
+                private String advance() {
+                    try {
+                        String line;
+                        while ((line = in.readLine()) != null) {
+                            lineNumber++;
+                            if (nextDropped == lineNumber) {
+                                nextDropped = drops.hasNext() ? drops.nextLong() : -1;
+                                continue;
+                            }
+                            return canonical(line);
+                        }
+                        return null;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public String next() {
+                    if (next == null) throw new NoSuchElementException();
+                    String line = next;
+                    next = advance();
+                    return line;
+                }
+            };
+
+            // Sorting the kept lines in runs if they are out of order
+            Iterator<String> sorted = kept;
+            if (unsorted > 0) {
+                ArrayList<String> run = new ArrayList<>();
+                while (kept.hasNext()) {
+                    run.add(kept.next());
+                    if (run.size() == LINE_RUN_SIZE) {
+                        runs.add(spill(run));
+                        run.clear();
+                    }
+                }
+                Collections.sort(run);
+                for (File file : runs) runReaders.add(new BufferedReader(new FileReader(file), 1 << 16));
+                sorted = merge(runReaders, run);
+            }
+
+            Iterator<String> sortedLines = sorted;
+            return FileContactStore.write(contactList, new Iterator<Contact>() {
+                @Override
+                public boolean hasNext() {
+                    return sortedLines.hasNext();
+                }
+
+                @Override
+                public Contact next() {
+                    return Contact.parse(sortedLines.next());
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (BufferedReader runReader : runReaders) runReader.close();
+            for (DataInputStream droppedReader : droppedReaders) droppedReader.close();
+            for (File file : runs) file.delete();
+            for (File file : droppedRuns) file.delete();
+        }
+    }
+
+    /**
+     * @return true if there are malformed lines, lines in another format, lines out of order or duplicate numbers
+     */
+    boolean hasProblems() {
+        return malformed > 0 || reformatted > 0 || unsorted > 0 || duplicateNumbers > 0;
+    }
+
+    /**
+     * @return summary of the check, such as
+     * "Checked 5000 lines : 1 malformed, 0 in another format, 0 out of order, 2 duplicate numbers"
+     */
+    @Override
+    public String toString() {
+        return "Checked " + lines + " lines : " + malformed + " malformed, " + reformatted + " in another format, "
+                + unsorted + " out of order, " + duplicateNumbers + " duplicate numbers";
+    }
+
+    /**
+     * <tt>canonical(line)</tt> returns a well formed line in "Name: 808-779-1466" format. A line is well
+     * formed if it has a name before the ':' and a 10 digit number after it, so the spaces around the
+     * name and the separators of the number may differ.
+     *
+     * @param line the line
+     * @return the line in "Name: 808-779-1466" format, or null if the line is malformed
+     */
+    private static String canonical(String line) {
+        int i = line.indexOf(':');
+        if (i < 0) return null;
+        String name = line.substring(0, i).trim();
+        if (name.isEmpty()) return null;
+        long number = 0;
+        int digits = 0;
+        for (int j = i + 1; j < line.length(); j++) {
+            char c = line.charAt(j);
+            if (c >= '0' && c <= '9') {
+                if (++digits > NUMBER_DIGITS) return null;
+                number = number * 10 + (c - '0');
+            }
+        }
+        if (digits < NUMBER_DIGITS) return null;
+        return new Contact(name, number).toString();
+    }
+
+    /**
+     * <tt>findDuplicates(runs, last, lastLength)</tt> merges the sorted runs of packed longs and prints
+     * the line numbers of every number which is on more than one line.
+     *
+     * @param runs the spilled runs
+     * @param last the run in memory
+     * @param lastLength length of the run in memory
+     * @throws IOException If a run cannot be read
+     */
+    private void findDuplicates(List<File> runs, long[] last, int lastLength) throws IOException {
+        // Heads of the runs, the run in memory is the last one
+        int sources = runs.size() + 1;
+        DataInputStream[] ins = new DataInputStream[runs.size()];
+        long[] heads = new long[sources];
+        long[] remaining = new long[sources];
+        int lastPosition = 0;
+        PriorityQueue<Integer> queue = new PriorityQueue<>(sources, Comparator.comparingLong(s -> heads[s]));
+        try {
+            for (int s = 0; s < runs.size(); s++) {
+                ins[s] = new DataInputStream(new BufferedInputStream(new FileInputStream(runs.get(s)), 1 << 16));
+                remaining[s] = runs.get(s).length() / 8 - 1;
+                heads[s] = ins[s].readLong();
+                queue.add(s);
+            }
+            if (lastLength > 0) {
+                heads[sources - 1] = last[lastPosition++];
+                queue.add(sources - 1);
+            }
+
+            // Grouping the equal numbers
+            long groupNumber = -1;
+            StringBuilder group = new StringBuilder();
+            int groupSize = 0;
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                long packed = heads[s];
+                if (s == sources - 1 ? lastPosition < lastLength : remaining[s]-- > 0) {
+                    heads[s] = s == sources - 1 ? last[lastPosition++] : ins[s].readLong();
+                    queue.add(s);
+                }
+
+                long number = packed >>> LINE_BITS;
+                long line = packed & LINE_MASK;
+                if (number != groupNumber) {
+                    printGroup(groupNumber, group, groupSize);
+                    groupNumber = number;
+                    group.setLength(0);
+                    groupSize = 0;
+                } else {
+                    drop(line);     // the first line of the group is kept
+                }
+                group.append(groupSize++ == 0 ? "" : ", ").append(line);
+            }
+            printGroup(groupNumber, group, groupSize);
+        } finally {
+            for (DataInputStream in : ins) if (in != null) in.close();
+        }
+    }
+
+    /**
+     * <tt>printGroup(number, group, size)</tt> prints a group of lines with the same number if there are
+     * more than one.
+     *
+     * @param number the number
+     * @param group the line numbers
+     * @param size number of lines
+     */
+    private void printGroup(long number, CharSequence group, int size) {
+        if (size < 2) return;
+        duplicateNumbers++;
+        out.println("Duplicate number " + Contact.formatNumber(number) + " on lines " + group);
+    }
+
+    /**
+     * <tt>drop(line)</tt> adds a line number to the lines which are left out by a repair.
+     *
+     * @param line line number
+     * @throws IOException If a full run cannot be spilled
+     */
+    private void drop(long line) throws IOException {
+        if (droppedCount == dropped.length) {
+            if (dropped.length < RUN_SIZE) {
+                dropped = Arrays.copyOf(dropped, Math.min(dropped.length * 2, RUN_SIZE));
+            } else {
+                droppedRuns.add(spill(dropped, droppedCount));
+                droppedCount = 0;
+            }
+        }
+        dropped[droppedCount++] = line;
+    }
+
+    /**
+     * <tt>droppedLines(ins)</tt> merges the sorted runs of the dropped line numbers.
+     * The iterator throws an <tt>UncheckedIOException</tt> if a run cannot be read.
+     *
+     * @param ins the opened runs are added, to be closed by the caller
+     * @return the dropped line numbers in ascending order
+     * @throws IOException If a run cannot be opened
+     */
+    private PrimitiveIterator.OfLong droppedLines(List<DataInputStream> ins) throws IOException {
+        // Heads of the runs, the run in memory is the last one
+        int sources = droppedRuns.size() + 1;
+        long[] heads = new long[sources];
+        long[] remaining = new long[sources];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(sources, Comparator.comparingLong(s -> heads[s]));
+        for (int s = 0; s < droppedRuns.size(); s++) {
+            ins.add(new DataInputStream(new BufferedInputStream(new FileInputStream(droppedRuns.get(s)), 1 << 16)));
+            remaining[s] = droppedRuns.get(s).length() / 8 - 1;
+            heads[s] = ins.get(s).readLong();
+            queue.add(s);
+        }
+        if (droppedCount > 0) {
+            remaining[sources - 1] = droppedCount - 1;
+            heads[sources - 1] = dropped[0];
+            queue.add(sources - 1);
+        }
+        return new PrimitiveIterator.OfLong() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public long nextLong() {
+                if (queue.isEmpty()) throw new NoSuchElementException();
+                int s = queue.poll();
+                long line = heads[s];
+                if (remaining[s]-- > 0) {
+                    try {
+                        heads[s] = s == sources - 1 ? dropped[droppedCount - 1 - (int) remaining[s]]
+                                : ins.get(s).readLong();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    queue.add(s);
+                }
+                return line;
+            }
+        };
+    }
+
+    /**
+     * <tt>spill(run, length)</tt> sorts a run of packed longs and writes it to a temporary file.
+     *
+     * @param run the run
+     * @param length length of the run
+     * @return the temporary file
+     * @throws IOException If the file cannot be written
+     */
+    private File spill(long[] run, int length) throws IOException {
+        Arrays.sort(run, 0, length);
+        File file = File.createTempFile("contact_list", ".run", contactList.getAbsoluteFile().getParentFile());
+        file.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            for (int i = 0; i < length; i++) out.writeLong(run[i]);
+        }
+        return file;
+    }
+
+    /**
+     * <tt>spill(run)</tt> sorts a run of lines and writes it to a temporary file.
+     *
+     * @param run the run
+     * @return the temporary file
+     * @throws IOException If the file cannot be written
+     */
+    private File spill(List<String> run) throws IOException {
+        Collections.sort(run);
+        File file = File.createTempFile("contact_list", ".run", contactList.getAbsoluteFile().getParentFile());
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file), 1 << 16))) {
+            for (String line : run) out.println(line);
+        }
+        return file;
+    }
+
+    /**
+     * <tt>merge(runs, last)</tt> merges the sorted runs of lines.
+     *
+     * @param runs readers of the spilled runs
+     * @param last the sorted run in memory
+     * @return the lines in order
+     */
+    private static Iterator<String> merge(List<BufferedReader> runs, List<String> last) {
+        ArrayList<Iterator<String>> sources = new ArrayList<>();
+        for (BufferedReader run : runs) sources.add(run.lines().iterator());
+        sources.add(last.iterator());
+
+        String[] heads = new String[sources.size()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(sources.size(), Comparator.comparing(s -> heads[s]));
+        for (int s = 0; s < sources.size(); s++) {
+            if (sources.get(s).hasNext()) {
+                heads[s] = sources.get(s).next();
+                queue.add(s);
+            }
+        }
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                if (queue.isEmpty()) throw new NoSuchElementException();
+                int s = queue.poll();
+                String line = heads[s];
+                if (sources.get(s).hasNext()) {
+                    heads[s] = sources.get(s).next();
+                    queue.add(s);
+                }
+                return line;
+            }
+        };
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <tt>ContactListLock</tt> is an exclusive lock of a contact list which is held while the contact list,
+ * its index or its delta segment is rewritten.
+ *
+ * <p> The lock is a <tt>FileLock</tt> on <tt>contact_list.txt.lock</tt>, so it works across processes.
+ * Contacts which are waiting for the lock are queued in <tt>contact_list.txt.pending</tt>. The process
+ * which gets the lock drains the whole queue, so the contacts inserted at the same time are merged
+ * into the contact list with one rewrite. </p>
+ *
+ * <p> Files are always written to a temporary file and renamed over the old file with
+ * <tt>replace</tt>, so the readers never see a truncated file. </p>
+ *
+ * <p> Within a process, each contact list has its own lock, so the writes of unrelated contact lists
+ * do not wait for each other. A thread which already holds the lock of a contact list can acquire
+ * it again, e.g. when the number index is updated during a merge. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class ContactListLock implements Closeable {
+    // FileLocks are held by the whole JVM, so the threads of a process take turns with these locks first,
+    // a lock per canonical path of a contact list
+    private static final ConcurrentHashMap<String, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+    // The threads of a process take turns with the FileLock of a queue in the same way, a lock per queue
+    // which is held only while the queue is written or drained, so queueing does not wait for a merge
+    private static final ConcurrentHashMap<String, ReentrantLock> QUEUE_LOCKS = new ConcurrentHashMap<>();
+
+    private final File contactList;
+    private final ReentrantLock processLock;
+    private final FileChannel channel;  // null if the lock was already held by the thread
+    private final FileLock lock;
+
+    /**
+     * Constructs a <tt>ContactListLock</tt> over an acquired lock
+     *
+     * @param contactList contact list
+     * @param processLock the acquired lock of the contact list in this process
+     * @param channel opened lock file, or null if the lock is acquired again by the same thread
+     * @param lock the acquired lock, or null if the lock is acquired again by the same thread
+     */
+    private ContactListLock(File contactList, ReentrantLock processLock, FileChannel channel, FileLock lock) {
+        this.contactList = contactList;
+        this.processLock = processLock;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * <tt>acquire(contactList)</tt> waits until the contact list is not locked by any other
+     * process or thread and locks it.
+     *
+     * @param contactList contact list
+     * @return the acquired lock
+     * @throws IOException If the lock file cannot be opened
+     */
+    static ContactListLock acquire(File contactList) throws IOException {
+        ReentrantLock processLock = PROCESS_LOCKS.computeIfAbsent(contactList.getCanonicalPath(),
+                path -> new ReentrantLock());
+        // The FileLock cannot be acquired twice, the thread already holds it
+        boolean held = processLock.isHeldByCurrentThread();
+        processLock.lock();
+        if (held) return new ContactListLock(contactList, processLock, null, null);
+        try {
+            FileChannel channel = FileChannel.open(new File(contactList.getAbsolutePath() + ".lock").toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                return new ContactListLock(contactList, processLock, channel, channel.lock());
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            processLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * <tt>enqueue(contactList, newLine)</tt> adds a line to the queue of the contact list.
+     * This does not wait for the lock of the contact list.
+     *
+     * @param contactList contact list
+     * @param newLine the line which is to be inserted
+     * @throws IOException If the queue cannot be written
+     */
+    static void enqueue(File contactList, String newLine) throws IOException {
+        ReentrantLock queueLock = queueLock(contactList);
+        queueLock.lock();
+        try (FileChannel queue = FileChannel.open(pendingFile(contactList).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            queue.lock();   // released when the queue is closed
+            ByteBuffer buf = ByteBuffer.wrap((newLine + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) queue.write(buf);
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    /**
+     * <tt>drain()</tt> removes and returns all the lines of the queue.
+     *
+     * @return the queued lines
+     * @throws IOException If the queue cannot be read
+     */
+    List<String> drain() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        File pendingFile = pendingFile(contactList);
+        if (!pendingFile.exists()) return lines;
+        ReentrantLock queueLock = queueLock(contactList);
+        queueLock.lock();
+        try (FileChannel queue = FileChannel.open(pendingFile.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            queue.lock();   // released when the queue is closed
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(queue), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) lines.add(line);
+            }
+            queue.truncate(0);
+        } finally {
+            queueLock.unlock();
+        }
+        return lines;
+    }
+
+    /**
+     * Releases the lock
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (lock != null) {
+                lock.release();
+                channel.close();
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * <tt>replace(tempFile, target)</tt> renames a completely written temporary file over the target
+     * atomically, if the file system supports it.
+     *
+     * @param tempFile temporary file
+     * @param target the file which is to be replaced
+     * @throws IOException If the file cannot be renamed
+     */
+    static void replace(File tempFile, File target) throws IOException {
+        try {
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * <tt>queueLock(contactList)</tt> returns the lock of the queue of a contact list in this process.
+     *
+     * @param contactList contact list
+     * @return the lock of the queue
+     * @throws IOException If the path cannot be resolved
+     */
+    private static ReentrantLock queueLock(File contactList) throws IOException {
+        return QUEUE_LOCKS.computeIfAbsent(contactList.getCanonicalPath(), path -> new ReentrantLock());
+    }
+
+    /**
+     * <tt>pendingFile(contactList)</tt> returns the queue file of a contact list.
+     *
+     * @param contactList contact list
+     * @return the queue file
+     */
+    private static File pendingFile(File contactList) {
+        return new File(contactList.getAbsolutePath() + ".pending");
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <tt>ContactListWatcher</tt> keeps the lookup structures of a contact list up to date while other
+ * programs append to it or edit it.
+ *
+ * <p> The directory of the contact list is watched with a <tt>WatchService</tt>. When the contact list
+ * changes, the number index is opened again on a background thread: lines which are appended to the
+ * contact list are added to the index, and the index is rebuilt only if the contact list was rewritten.
+ * The mapping of the contact list which is used by the name lookups is refreshed as well, so the
+ * first lookup after a change does not pay for it. Changes which come within <tt>SETTLE_MILLIS</tt>
+ * of each other are applied at once. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class ContactListWatcher implements AutoCloseable {
+    // Time to wait for more changes before applying them
+    private static final long SETTLE_MILLIS = 50;
+
+    private final File contactList;
+    private final PrintStream log;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Constructs a <tt>ContactListWatcher</tt> and starts watching.
+     *
+     * @param contactList the ".txt" contact list
+     * @param log output of the errors of the background thread
+     * @throws IOException If the directory cannot be watched
+     */
+    ContactListWatcher(File contactList, PrintStream log) throws IOException {
+        this.contactList = contactList.getAbsoluteFile();
+        this.log = log;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.contactList.getParentFile().toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "contact-list-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * <tt>watch()</tt> waits for the changes of the contact list and applies them until the watcher is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = isChanged(key);
+                // Collecting the changes which come right after
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= isChanged(key);
+                }
+                if (changed) update();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher is closed
+        }
+    }
+
+    /**
+     * <tt>isChanged(key)</tt> checks whether the events of a key are changes of the contact list,
+     * and resets the key.
+     *
+     * @param key the signalled key
+     * @return true if the contact list is changed
+     */
+    private boolean isChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // Changes of the index files and the other files in the directory are skipped
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || contactList.getName().equals(String.valueOf(event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * <tt>update()</tt> brings the number index and the mapping of the contact list up to date.
+     * It is measured as a "watch" operation of the <tt>OperationStats</tt>, the lines it scanned
+     * show whether only the appended lines were indexed.
+     */
+    private void update() {
+        if (!contactList.isFile()) return;
+        OperationStats.begin("watch", contactList.getPath(), null);
+        try {
+            NumberIndex.open(contactList);
+            if (contactList.length() <= Integer.MAX_VALUE) new FileContactStore(contactList).mapContactList().load();
+        } catch (IOException e) {
+            log.println("Contact List cannot be indexed : " + e);
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>close()</tt> stops watching.
+     *
+     * @throws IOException If the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.PrintStream;
+
+/**
+ * <tt>ContactPrinter</tt> prints the contact details of a search in one of the following formats:
+ *
+ * <code>
+ * padded : Mary Anne            808-779-1466
+ * tsv    : Mary Anne\t808-779-1466
+ * json   : [{"name":"Mary Anne","number":"808-779-1466"}]
+ * </code>
+ *
+ * <p> The lines are formatted into a reusable buffer, the padding is written by hand, and the buffer
+ * is written to the output in chunks of <tt>CHUNK_SIZE</tt> characters, so a large result is not
+ * written one formatted line at a time. Only the page of <tt>limit</tt> lines after the first
+ * <tt>offset</tt> lines is printed. <tt>close</tt> must be called after the last line. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class ContactPrinter implements AutoCloseable {
+    // Number of buffered characters which are written to the output at once
+    private static final int CHUNK_SIZE = 1 << 16;
+    // Widths of the name and the number columns of the padded format
+    private static final int NAME_WIDTH = 30;
+    private static final int NUMBER_WIDTH = 20;
+
+    private final PrintStream out;
+    private final String format;
+    private final long offset;
+    private final long limit;
+    private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE + 256);
+    private long seen = 0;      // number of lines given to print
+    private long printed = 0;   // number of lines printed
+
+    /**
+     * Constructs a <tt>ContactPrinter</tt>.
+     *
+     * @param out output
+     * @param format "padded", "tsv" or "json"
+     * @param offset number of lines which are skipped
+     * @param limit maximum number of lines which are printed
+     * @throws IllegalArgumentException If the format is unknown or the page is negative
+     */
+    ContactPrinter(PrintStream out, String format, long offset, long limit) throws IllegalArgumentException {
+        if (!format.equals("padded") && !format.equals("tsv") && !format.equals("json"))
+            throw new IllegalArgumentException("Unknown output format : " + format + ". Use padded, tsv or json");
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("--offset and --limit should not be negative.!");
+        this.out = out;
+        this.format = format;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * <tt>print(line)</tt> prints an entry in "Name: 808-779-1466" format, if it is in the page.
+     *
+     * @param line the entry
+     */
+    void print(String line) {
+        print(null, line);
+    }
+
+    /**
+     * <tt>print(tag, line)</tt> prints an entry after a tag, if it is in the page.
+     *
+     * @param tag text printed before the entry, or null
+     * @param line the entry in "Name: 808-779-1466" format
+     */
+    void print(String tag, String line) {
+        if (seen++ < offset || printed >= limit) return;
+        int i = line.indexOf(':');
+        if (i < 0) i = line.length();
+        int numberStart = Math.min(i + 2, line.length());
+        if (tag != null) buffer.append(tag);
+
+        if (format.equals("json")) {
+            buffer.append(printed == 0 ? "[" : ",\n").append("{\"name\":");
+            appendJson(line, 0, i);
+            buffer.append(",\"number\":");
+            appendJson(line, numberStart, line.length());
+            buffer.append('}');
+        } else if (format.equals("tsv")) {
+            buffer.append(line, 0, i).append('\t').append(line, numberStart, line.length()).append('\n');
+        } else {
+            // Maximum name length is 30 characters, Maximum number length is 20 characters
+            buffer.append(line, 0, i);
+            pad(NAME_WIDTH - i);
+            buffer.append(line, numberStart, line.length());
+            pad(NUMBER_WIDTH - (line.length() - numberStart));
+            buffer.append('\n');
+        }
+        printed++;
+        if (buffer.length() >= CHUNK_SIZE) flush();
+    }
+
+    /**
+     * <tt>flush()</tt> writes the buffered lines to the output.
+     */
+    void flush() {
+        if (buffer.length() == 0) return;
+        out.print(buffer);
+        buffer.setLength(0);
+    }
+
+    /**
+     * <tt>close()</tt> finishes the json array and writes the buffered lines to the output.
+     * The output is not closed.
+     */
+    @Override
+    public void close() {
+        if (format.equals("json")) buffer.append(printed == 0 ? "[]\n" : "]\n");
+        flush();
+        out.flush();
+    }
+
+    /**
+     * <tt>pad(n)</tt> appends n spaces to the buffer.
+     *
+     * @param n number of spaces, nothing is appended if it is not positive
+     */
+    private void pad(int n) {
+        for (int k = 0; k < n; k++) buffer.append(' ');
+    }
+
+    /**
+     * <tt>appendJson(s, start, end)</tt> appends a part of a string to the buffer as a json string.
+     *
+     * @param s string
+     * @param start first character
+     * @param end character after the last character
+     */
+    private void appendJson(String s, int start, int end) {
+        buffer.append('"');
+        for (int k = start; k < end; k++) {
+            char c = s.charAt(k);
+            if (c == '"' || c == '\\') {
+                buffer.append('\\').append(c);
+            } else if (c < 0x20) {
+                buffer.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                buffer.append(c);
+            }
+        }
+        buffer.append('"');
+    }
+}
@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * <tt>ContactStore</tt> is a phone contact list which returns the results of its operations
+ * instead of printing them, so it can be embedded in other applications.
+ *
+ * <p> Contacts are kept in the alphabetical order of names and NO duplicate numbers are
+ * inserted. </p>
+ *
+ * <ul>
+ * <li><tt>FileContactStore</tt> stores the contacts in a ".txt" file</li>
+ * <li><tt>BinaryContactStore</tt> stores the contacts in a compact binary file</li>
+ * <li><tt>ShardedContactStore</tt> stores the contacts in a directory of ".txt" files</li>
+ * <li><tt>MemoryContactStore</tt> stores the contacts in compact arrays in memory</li>
+ * </ul>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public interface ContactStore {
+    /**
+     * <tt>findByName(name)</tt> returns the contacts whose names start with the given name.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If the contacts cannot be read
+     */
+    List<Contact> findByName(String name) throws IOException;
+
+    /**
+     * <tt>findContaining(name)</tt> returns the contacts which contain the given name anywhere.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If the contacts cannot be read
+     */
+    List<Contact> findContaining(String name) throws IOException;
+
+    /**
+     * <tt>findByNumber(number)</tt> returns the contacts of a phone number.
+     * There is more than one contact only if duplicate numbers are stored.
+     *
+     * @param number phone number
+     * @return the matching contacts in order
+     * @throws IOException If the contacts cannot be read
+     */
+    List<Contact> findByNumber(long number) throws IOException;
+
+    /**
+     * <tt>insert(name, number)</tt> inserts a contact.
+     *
+     * @param name name
+     * @param number phone number
+     * @throws InputDuplicateNumberException If the phone number is already stored
+     * @throws IOException If the contacts cannot be written
+     */
+    void insert(String name, long number) throws IOException;
+
+    /**
+     * <tt>insertAll(contacts)</tt> inserts a batch of contacts at once.
+     *
+     * @param contacts the contacts which are to be inserted
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the input order
+     * @throws IOException If the contacts cannot be written
+     */
+    List<InputDuplicateNumberException> insertAll(Collection<Contact> contacts) throws IOException;
+
+    /**
+     * <tt>insertSorted(contacts)</tt> inserts contacts which are already in order with a single merge,
+     * reading them from the iterator as it goes, so a large import is never held in memory.
+     * The numbers of the contacts should be distinct, as the caller can check them while it produces
+     * the contacts. The stores which do not hold the contacts in memory do not check them again.
+     *
+     * @param contacts the contacts which are to be inserted, in order, with distinct numbers
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact
+     * @throws IOException If the contacts are not in order or cannot be written
+     */
+    List<InputDuplicateNumberException> insertSorted(Iterator<Contact> contacts) throws IOException;
+
+    /**
+     * <tt>stream()</tt> returns all the contacts in order. The stream should be closed.
+     *
+     * @return stream of the contacts
+     * @throws IOException If the contacts cannot be read
+     */
+    Stream<Contact> stream() throws IOException;
+}
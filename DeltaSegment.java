@@ -0,0 +1,84 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * <tt>DeltaSegment</tt> is a small segment of contact details which are appended
+ * to a contact list without rewriting it.
+ *
+ * <p> The segment is stored next to the contact list as <tt>contact_list.txt.delta</tt> in the
+ * same "Name: 808-779-1466" format. New lines are appended to the end of the segment, and the
+ * segment is sorted when it is read. Reads merge the contact list with the segment and the
+ * segment is folded into the contact list by the next full rewrite (compaction). </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class DeltaSegment {
+    // Segment file extension which is appended to the contact list file name
+    static final String EXTENSION = ".delta";
+
+    /**
+     * <tt>deltaFile(contactList)</tt> returns the segment file of a contact list.
+     *
+     * @param contactList contact list
+     * @return the segment file
+     */
+    static File deltaFile(File contactList) {
+        return new File(contactList.getAbsolutePath() + EXTENSION);
+    }
+
+    /**
+     * <tt>read(contactList)</tt> reads the lines of the segment in sorted order.
+     *
+     * @param contactList contact list
+     * @return the lines of the segment, empty if there is no segment
+     * @throws IOException If the segment cannot be read
+     */
+    static ArrayList<String> read(File contactList) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        File deltaFile = deltaFile(contactList);
+        if (!deltaFile.exists()) return lines;
+        try (BufferedReader in = new BufferedReader(new FileReader(deltaFile))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        OperationStats.addLinesScanned(lines.size());
+        OperationStats.addBytesRead(deltaFile.length());
+        // The lines are in the order they were appended
+        Collections.sort(lines);
+        return lines;
+    }
+
+    /**
+     * <tt>insert(contactList, newLine)</tt> appends a line to the end of the segment.
+     * Only the new line is written, the contact list is not touched. The caller should
+     * hold the <tt>ContactListLock</tt>.
+     *
+     * @param contactList contact list
+     * @param newLine the line which is to be inserted
+     * @return size of the segment in bytes
+     * @throws IOException If the segment cannot be written
+     */
+    static long insert(File contactList, String newLine) throws IOException {
+        File deltaFile = deltaFile(contactList);
+        try (Writer out = new BufferedWriter(new FileWriter(deltaFile, true))) {
+            out.write(newLine);
+            out.write(System.lineSeparator());
+        }
+        OperationStats.addBytesWritten(newLine.length() + System.lineSeparator().length());
+        return deltaFile.length();
+    }
+
+    /**
+     * <tt>delete(contactList)</tt> deletes the segment after it is folded into the contact list.
+     *
+     * @param contactList contact list
+     * @throws IOException If the segment cannot be deleted
+     */
+    static void delete(File contactList) throws IOException {
+        Files.deleteIfExists(deltaFile(contactList).toPath());
+    }
+}
@@ -0,0 +1,24 @@
+import java.io.IOException;
+
+/**
+ * <tt>DuplicateNumberException</tt> extends IOException.
+ * This exception is thrown If duplicate contact numbers are found.
+ *
+ */
+class DuplicateNumberException extends IOException {
+    /**
+     * Constructs a <tt>DuplicateNumberException</tt> with default error detail message.
+     *
+     */
+    public DuplicateNumberException() {}
+
+    /**
+     * Constructs a <tt>DuplicateNumberException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public DuplicateNumberException(String message) {
+        super(message);
+    }
+}
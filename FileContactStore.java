@@ -0,0 +1,960 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <tt>FileContactStore</tt> is a <tt>ContactStore</tt> which stores the contacts in a ".txt" file,
+ * one "Name: 808-779-1466" line per contact in the alphabetical order.
+ *
+ * <ul>
+ * <li>Names are looked up with a binary search over the memory mapped file.</li>
+ * <li>Numbers are looked up in the <tt>NumberIndex</tt> next to the file.</li>
+ * <li>Substring searches are scanned in parallel by the <tt>ParallelLineScanner</tt>.</li>
+ * <li>Misspelled names are looked up in the <tt>TrigramIndex</tt> next to the file.</li>
+ * <li>Inserts are merged into the file in a single streaming pass under the <tt>ContactListLock</tt>,
+ * or appended to the <tt>DeltaSegment</tt> if <tt>setAppendToLog(true)</tt> is set.</li>
+ * </ul>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public class FileContactStore implements ContactStore {
+    // Number of bytes written by println after each line
+    private static final int LINE_SEPARATOR_LENGTH = System.lineSeparator().length();
+
+    // Maximum number of candidate lines of a fuzzy search which are ranked
+    private static final int FUZZY_CANDIDATES = 256;
+
+    // Mapped contact lists by their canonical paths
+    private static final ConcurrentHashMap<String, Mapping> MAPPINGS = new ConcurrentHashMap<>();
+
+    private final File contactList;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean appendToLog = false;
+    private long compactThreshold = 65536;
+    private LookupCache lookupCache = new LookupCache(4096);
+
+    /**
+     * Constructs a <tt>FileContactStore</tt>.
+     *
+     * @param contactList the ".txt" file of the contacts
+     */
+    public FileContactStore(File contactList) {
+        this.contactList = contactList;
+    }
+
+    /**
+     * <tt>setThreads(threads)</tt> sets the number of threads of the substring searches.
+     * It is the number of cores by default.
+     *
+     * @param threads number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * <tt>setAppendToLog(appendToLog)</tt> sets whether the inserted contacts are appended to the
+     * delta segment instead of rewriting the file.
+     *
+     * @param appendToLog true to append to the delta segment
+     */
+    public void setAppendToLog(boolean appendToLog) {
+        this.appendToLog = appendToLog;
+    }
+
+    /**
+     * <tt>setCompactThreshold(compactThreshold)</tt> sets the size of the delta segment which
+     * triggers a compaction. It is 64KB by default.
+     *
+     * @param compactThreshold size of the delta segment in bytes
+     */
+    public void setCompactThreshold(long compactThreshold) {
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * <tt>setLookupCache(lookupCache)</tt> sets the cache of the lookup results. Stores which share
+     * a cache share the cached results. Each store has its own cache of 4096 results by default.
+     *
+     * @param lookupCache cache of the lookup results
+     */
+    public void setLookupCache(LookupCache lookupCache) {
+        this.lookupCache = lookupCache;
+    }
+
+    /**
+     * <tt>findByName(name)</tt> returns the contacts whose names start with the given name.
+     *
+     * <p> The file is always sorted, so it is memory mapped and binary searched on the
+     * line boundaries for the first matching line. Only the matching lines are decoded. </p>
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If there are no file in the path
+     */
+    @Override
+    public List<Contact> findByName(String name) throws IOException {
+        return cached("name", name, () -> readByName(name));
+    }
+
+    /**
+     * <tt>readByName(name)</tt> reads the contacts whose names start with the given name.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If there are no file in the path
+     */
+    private List<Contact> readByName(String name) throws IOException {
+        // Mapped buffers are limited to 2GB, larger files are scanned
+        if (contactList.length() > Integer.MAX_VALUE) {
+            List<Contact> contacts = findContaining(name);
+            contacts.removeIf(contact -> !contact.toString().startsWith(name));
+            return contacts;
+        }
+        MappedByteBuffer buf = mapContactList();
+        byte[] prefix = name.getBytes(StandardCharsets.UTF_8);
+        long sortedSize = NumberIndex.open(contactList).getSortedSize();
+        int sortedEnd = (int) Math.min(sortedSize, buf.limit());
+
+        // Finding the first line which is not less than the name
+        int lo = 0;
+        int hi = sortedEnd;
+        while (lo < hi) {
+            int start = lineStart(buf, (lo + hi) >>> 1);
+            if (comparePrefix(buf, start, prefix) < 0) {
+                lo = nextLineStart(buf, start);
+            } else {
+                hi = start;
+            }
+        }
+
+        // Collecting the matching run
+        ArrayList<String> lines = new ArrayList<>();
+        int start = lo;
+        while (start < sortedEnd && comparePrefix(buf, start, prefix) == 0) {
+            lines.add(decodeLine(buf, start));
+            start = nextLineStart(buf, start);
+        }
+        OperationStats.addLinesScanned(lines.size());
+        OperationStats.addBytesRead(start - lo);
+        ArrayList<String> deltaLines = readUnsorted(sortedSize);
+        deltaLines.removeIf(line -> !line.startsWith(name));
+        return mergeDelta(lines, deltaLines);
+    }
+
+    /**
+     * <tt>findContaining(name)</tt> returns the contacts which contain the given name anywhere.
+     * The file is scanned in parallel.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If there are no file in the path
+     */
+    @Override
+    public List<Contact> findContaining(String name) throws IOException {
+        return cached("contains", name, () -> readContaining(name));
+    }
+
+    /**
+     * <tt>readContaining(name)</tt> scans the contacts which contain the given name anywhere.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If there are no file in the path
+     */
+    private List<Contact> readContaining(String name) throws IOException {
+        LongAdder linesScanned = new LongAdder();
+        List<String> lines = ParallelLineScanner.scan(contactList, name, threads, linesScanned);
+        // Lines appended by other programs are not in order
+        if (NumberIndex.open(contactList).getSortedSize() < contactList.length()) Collections.sort(lines);
+        OperationStats.addLinesScanned(linesScanned.sum());
+        OperationStats.addBytesRead(contactList.length());
+        ArrayList<String> deltaLines = DeltaSegment.read(contactList);
+        deltaLines.removeIf(line -> !line.contains(name));
+        return mergeDelta(lines, deltaLines);
+    }
+
+    /**
+     * <tt>findSimilar(name)</tt> returns the contacts whose names are similar to a misspelled name,
+     * the closest first.
+     *
+     * <p> The lines which share the most trigrams and Soundex codes with the name are looked up in the
+     * <tt>TrigramIndex</tt>, and only these candidates are ranked by the edit distance and the
+     * Soundex codes. The delta segment is ranked as well. </p>
+     *
+     * @param name the misspelled name
+     * @return the similar contacts
+     * @throws IOException If there are no file in the path
+     */
+    public List<Contact> findSimilar(String name) throws IOException {
+        return cached("fuzzy", name, () -> readSimilar(name));
+    }
+
+    /**
+     * <tt>readSimilar(name)</tt> reads and ranks the candidates of a misspelled name.
+     *
+     * @param name the misspelled name
+     * @return the similar contacts
+     * @throws IOException If there are no file in the path
+     */
+    private List<Contact> readSimilar(String name) throws IOException {
+        long[] offsets = TrigramIndex.open(contactList).candidates(name, FUZZY_CANDIDATES);
+        ArrayList<String> lines = new ArrayList<>(offsets.length);
+        if (contactList.length() <= Integer.MAX_VALUE) {
+            MappedByteBuffer buf = mapContactList();
+            for (long offset : offsets) lines.add(decodeLine(buf, (int) offset));
+        } else {
+            for (long offset : offsets) lines.add(NumberIndex.readLine(contactList, offset));
+        }
+        OperationStats.addLinesScanned(offsets.length);
+        lines.addAll(DeltaSegment.read(contactList));
+        return FuzzyNameMatcher.rank(name, lines);
+    }
+
+    /**
+     * <tt>findByNumber(number)</tt> returns the contacts of a phone number.
+     *
+     * <p> The number is looked up in the number index, so only the matching line is read
+     * from the file. The delta segment is searched as well. If the index shows that the number
+     * is stored more than one time, the file is scanned for all the duplicates. </p>
+     *
+     * @param number phone number
+     * @return the matching contacts in order
+     * @throws IOException If there are no file in the path
+     */
+    @Override
+    public List<Contact> findByNumber(long number) throws IOException {
+        return cached("number", String.valueOf(number), () -> readByNumber(number));
+    }
+
+    /**
+     * <tt>readByNumber(number)</tt> reads the contacts of a phone number.
+     *
+     * @param number phone number
+     * @return the matching contacts in order
+     * @throws IOException If there are no file in the path
+     */
+    private List<Contact> readByNumber(long number) throws IOException {
+        long offset = NumberIndex.open(contactList).find(number);
+        if (offset != NumberIndex.NOT_FOUND && (offset & NumberIndex.DUPLICATE) != 0) {
+            try (Stream<Contact> contacts = stream()) {
+                return contacts.filter(contact -> contact.getNumber() == number)
+                        .collect(Collectors.toCollection(ArrayList::new));
+            }
+        }
+
+        ArrayList<Contact> contacts = new ArrayList<>();
+        if (offset != NumberIndex.NOT_FOUND) contacts.add(Contact.parse(NumberIndex.readLine(contactList, offset)));
+        for (String line : DeltaSegment.read(contactList)) {
+            if (Contact.getNumber(line) == number) contacts.add(Contact.parse(line));
+        }
+        Collections.sort(contacts);
+        return contacts;
+    }
+
+    /**
+     * <tt>insert(name, number)</tt> inserts a contact to the file.
+     *
+     * <p> The contact is queued and merged into the file under the <tt>ContactListLock</tt>.
+     * The contacts queued by concurrent processes while the lock is held are merged by the same
+     * rewrite. </p>
+     *
+     * <p> If <tt>setAppendToLog(true)</tt> is set, the contact is appended to the delta segment instead
+     * of rewriting the file. The delta segment is compacted into the file in the background once it
+     * is larger than the compact threshold. </p>
+     *
+     * @param name name
+     * @param number phone number
+     * @throws InputDuplicateNumberException If the phone number is already available in the file.
+     * @throws IOException If there are no file in the path
+     */
+    @Override
+    public void insert(String name, long number) throws IOException {
+        OperationStats.begin("insert", contactList.getPath(), name);
+        try {
+            insertContact(name, number);
+            OperationStats.addMatches(1);
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>insertContact(name, number)</tt> inserts a contact to the file.
+     *
+     * @param name name
+     * @param number phone number
+     * @throws InputDuplicateNumberException If the phone number is already available in the file.
+     * @throws IOException If there are no file in the path
+     */
+    private void insertContact(String name, long number) throws IOException {
+        String newLine = new Contact(name, number).toString();
+
+        if (appendToLog) {
+            // Appending the contact to the delta segment, the number is checked under the lock,
+            // so a concurrent insert of the same number cannot be appended as well
+            long deltaSize;
+            ContactListLock lock = ContactListLock.acquire(contactList);
+            try {
+                checkNotStored(number);
+                long writeStart = System.nanoTime();
+                deltaSize = DeltaSegment.insert(contactList, newLine);
+                OperationStats.addWriteTime(System.nanoTime() - writeStart);
+                lookupCache.invalidate(contactList);
+            } finally {
+                lock.close();
+            }
+            if (deltaSize > compactThreshold) {
+                new Thread(() -> {
+                    try {
+                        compact();
+                    } catch (IOException e) {
+                        // the delta segment stays in place and is compacted by the next write
+                    }
+                }, "contact-list-compaction").start();
+            }
+            return;
+        }
+
+        // Rejecting a stored number before queueing it, the merge checks the numbers again under the lock
+        checkNotStored(number);
+
+        // Queueing the contact, whoever gets the lock first merges all the queued contacts at once
+        ContactListLock.enqueue(contactList, newLine);
+        String storedLine;
+        try (ContactListLock lock = ContactListLock.acquire(contactList)) {
+            List<String> pending = lock.drain();
+            if (!pending.isEmpty()) mergeEntries(pending, new InputDuplicateNumberException[pending.size()]);
+
+            // Checking whether the contact was merged or rejected as a duplicate of a concurrent insert,
+            // under the lock, so the offset is not read from a file which another thread has rewritten
+            long offset = NumberIndex.open(contactList).find(number);
+            storedLine = offset == NumberIndex.NOT_FOUND ? null : NumberIndex.readLine(contactList, offset);
+        }
+        if (storedLine == null)
+            throw new IOException("Could not add the contact details to the Contact List.!");
+        if (!storedLine.equals(newLine))
+            throw new InputDuplicateNumberException("The Number is Already Available in the " +
+                    "Contact List : " + storedLine);
+    }
+
+    /**
+     * <tt>checkNotStored(number)</tt> checks that a number is not in the file or the delta segment.
+     *
+     * @param number phone number
+     * @throws InputDuplicateNumberException If the phone number is already available in the file.
+     * @throws IOException If there are no file in the path
+     */
+    private void checkNotStored(long number) throws IOException {
+        // If the number already in the list, <tt>throwing the
+        // InputDuplicateNumberException</tt> exception
+        List<Contact> stored = findByNumber(number);
+        if (!stored.isEmpty()) {
+            throw new InputDuplicateNumberException("The Number is Already Available in the " +
+                    "Contact List : " + stored.get(0));
+        }
+    }
+
+    /**
+     * <tt>insertAll(contacts)</tt> merges a batch of contacts into the file with one rewrite.
+     *
+     * @param contacts the contacts which are to be inserted
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the input order
+     * @throws IOException If the file cannot be read or written
+     */
+    @Override
+    public List<InputDuplicateNumberException> insertAll(Collection<Contact> contacts) throws IOException {
+        ArrayList<InputDuplicateNumberException> rejects = new ArrayList<>();
+        for (InputDuplicateNumberException reject : insertBatch(contacts)) {
+            if (reject != null) rejects.add(reject);
+        }
+        return rejects;
+    }
+
+    /**
+     * <tt>insertBatch(contacts)</tt> merges a batch of contacts into the file with one rewrite, and
+     * returns the rejects by the positions of the contacts, so a caller which splits a batch can put
+     * them back in its own order.
+     *
+     * @param contacts the contacts which are to be inserted
+     * @return the <tt>InputDuplicateNumberException</tt> of every contact, null if it is inserted
+     * @throws IOException If the file cannot be read or written
+     */
+    InputDuplicateNumberException[] insertBatch(Collection<Contact> contacts) throws IOException {
+        ArrayList<String> newLines = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            newLines.add(contact.toString());
+        }
+        InputDuplicateNumberException[] rejected = new InputDuplicateNumberException[newLines.size()];
+        OperationStats.begin("insert", contactList.getPath(), null);
+        try {
+            ContactListLock lock = ContactListLock.acquire(contactList);
+            try {
+                OperationStats.addMatches(mergeEntries(newLines, rejected));
+            } finally {
+                lock.close();
+            }
+        } finally {
+            OperationStats.end();
+        }
+        return rejected;
+    }
+
+    /**
+     * <tt>insertSorted(contacts)</tt> merges sorted contacts into the file with one rewrite. The contacts
+     * are read while the file is merged, so none of them is held in memory.
+     *
+     * @param contacts the contacts which are to be inserted, in order, with distinct numbers
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the order of the contacts
+     * @throws IOException If the contacts are not in order or the file cannot be read or written
+     */
+    @Override
+    public List<InputDuplicateNumberException> insertSorted(Iterator<Contact> contacts) throws IOException {
+        ArrayList<InputDuplicateNumberException> rejects = new ArrayList<>();
+        OperationStats.begin("insert", contactList.getPath(), null);
+        try {
+            ContactListLock lock = ContactListLock.acquire(contactList);
+            try {
+                OperationStats.addMatches(mergeSorted(contacts, rejects));
+            } finally {
+                lock.close();
+            }
+        } finally {
+            OperationStats.end();
+        }
+        return rejects;
+    }
+
+    /**
+     * <tt>stream()</tt> returns all the contacts of the file merged with the delta segment.
+     * The stream reads the file lazily and should be closed.
+     *
+     * @return stream of the contacts in order
+     * @throws IOException If there are no file in the path
+     */
+    @Override
+    public Stream<Contact> stream() throws IOException {
+        long sortedSize = NumberIndex.open(contactList).getSortedSize();
+        ArrayList<String> deltaLines = readUnsorted(sortedSize);
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                new SortedPartInputStream(new FileInputStream(contactList), sortedSize)), 1 << 16);
+        OperationStats.addBytesRead(contactList.length());
+        Iterator<Contact> iterator = new Iterator<Contact>() {
+            private String line = readLine();
+            private int i = 0;  // next line of the delta segment
+
+            @Override
+            public boolean hasNext() {
+                return line != null || i < deltaLines.size();
+            }
+
+            @Override
+            public Contact next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (line == null || (i < deltaLines.size() && deltaLines.get(i).compareTo(line) < 0)) {
+                    return Contact.parse(deltaLines.get(i++));
+                }
+                String next = line;
+                line = readLine();
+                OperationStats.addLinesScanned(1);
+                return Contact.parse(next);
+            }
+
+            private String readLine() {
+                try {
+                    return in.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * <tt>compact()</tt> folds the delta segment into the file.
+     *
+     * @throws IOException If the file cannot be read or written
+     */
+    public void compact() throws IOException {
+        OperationStats.begin("compact", contactList.getPath(), null);
+        try {
+            ContactListLock lock = ContactListLock.acquire(contactList);
+            try {
+                mergeEntries(Collections.emptyList(), new InputDuplicateNumberException[0]);
+            } finally {
+                lock.close();
+            }
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>write(target, contacts)</tt> writes contacts to a text file with its number index.
+     * The delta segment of the target is deleted. The caller should hold the <tt>ContactListLock</tt>
+     * of the target.
+     *
+     * @param target the ".txt" file
+     * @param contacts the contacts in order
+     * @return number of written contacts
+     * @throws IOException If the file cannot be written
+     */
+    public static int write(File target, Iterator<Contact> contacts) throws IOException {
+        File tempFile = File.createTempFile("contact_list", ".tmp", target.getAbsoluteFile().getParentFile());
+        NumberIndex.Builder index = new NumberIndex.Builder();
+        int count = 0;
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(tempFile), 1 << 16))) {
+            long offset = 0;
+            while (contacts.hasNext()) {
+                offset = writeLine(out, contacts.next().toString(), index, offset);
+                count++;
+            }
+        } catch (RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        }
+        ContactListLock.replace(tempFile, target);
+        index.save(target);
+        DeltaSegment.delete(target);
+        return count;
+    }
+
+    /**
+     * <tt>mergeEntries(newLines, rejected)</tt> inserts a batch of entries to the file.
+     *
+     * <p> The batch is checked for duplicates against the number index, sorted once
+     * and merged with the already sorted file in a single streaming pass. The merged
+     * list is written to a temporary file which then replaces the file. </p>
+     *
+     * <p> The delta segment is folded into the file by the same pass.
+     * The caller should hold the <tt>ContactListLock</tt>. </p>
+     *
+     * @param newLines entries in "Name: 808-779-1466" format
+     * @param rejected the <tt>InputDuplicateNumberException</tt> of every rejected entry is set at its position
+     * @return number of entries added to the file
+     * @throws IOException If the file cannot be read or written
+     */
+    private int mergeEntries(List<String> newLines, InputDuplicateNumberException[] rejected)
+            throws IOException {
+        // Collecting the numbers of the delta segment which is folded by this merge
+        ArrayList<String> deltaLines = DeltaSegment.read(contactList);
+        HashMap<Long, String> batchNumbers = new HashMap<>();
+        for (String line : deltaLines) {
+            batchNumbers.put(Contact.getNumber(line), line);
+        }
+
+        // Removing the duplicates in the input order, so the first entry of a number is inserted
+        ArrayList<String> accepted = new ArrayList<>(newLines.size() + deltaLines.size());
+        NumberIndex numberIndex = NumberIndex.open(contactList);
+        long sortedSize = numberIndex.getSortedSize();
+        for (int i = 0; i < newLines.size(); i++) {
+            String newLine = newLines.get(i);
+            long number = Contact.getNumber(newLine);
+            long offset = numberIndex.find(number);
+            String storedLine = offset != NumberIndex.NOT_FOUND
+                    ? NumberIndex.readLine(contactList, offset) : batchNumbers.putIfAbsent(number, newLine);
+            if (storedLine != null) {
+                rejected[i] = new InputDuplicateNumberException("The Number is Already Available in the " +
+                        "Contact List : " + storedLine);
+                continue;
+            }
+            accepted.add(newLine);
+        }
+        int added = accepted.size();
+        accepted.addAll(deltaLines);
+        accepted.addAll(readTail(sortedSize));  // the lines appended by other programs are sorted again
+        if (accepted.isEmpty()) return 0;
+        long sortStart = System.nanoTime();
+        Collections.sort(accepted); // Sorting the batch in ascending order
+        OperationStats.addSortTime(System.nanoTime() - sortStart);
+        Iterator<String> lines = accepted.iterator();
+        rewrite(() -> lines.hasNext() ? lines.next() : null, sortedSize);
+        return added;
+    }
+
+    /**
+     * <tt>mergeSorted(contacts, rejects)</tt> inserts sorted contacts to the file.
+     *
+     * <p> The contacts are checked for duplicates against the number index and the delta segment
+     * as they are read, and merged with the file, the delta segment and the lines appended by other
+     * programs in a single streaming pass. The numbers of the contacts are not checked against each
+     * other, the caller gives distinct numbers. The caller should hold the <tt>ContactListLock</tt>. </p>
+     *
+     * @param contacts the contacts in order, with distinct numbers
+     * @param rejects an <tt>InputDuplicateNumberException</tt> is added for every rejected contact
+     * @return number of contacts added to the file
+     * @throws IOException If the contacts are not in order or the file cannot be read or written
+     */
+    private int mergeSorted(Iterator<Contact> contacts, List<InputDuplicateNumberException> rejects)
+            throws IOException {
+        // Collecting the lines of the delta segment and the lines appended by other programs
+        ArrayList<String> deltaLines = DeltaSegment.read(contactList);
+        HashMap<Long, String> deltaNumbers = new HashMap<>();
+        for (String line : deltaLines) {
+            deltaNumbers.put(Contact.getNumber(line), line);
+        }
+        NumberIndex numberIndex = NumberIndex.open(contactList);
+        long sortedSize = numberIndex.getSortedSize();
+        ArrayList<String> unsorted = deltaLines;
+        unsorted.addAll(readTail(sortedSize));
+        Collections.sort(unsorted);
+
+        // Merging the accepted contacts with the unsorted lines while the file is merged
+        LongAdder inserted = new LongAdder();
+        rewrite(new LineSource() {
+            private boolean started = false;
+            private String nextNew = null;
+            private String previous = null;
+            private int i = 0;  // next unsorted line
+
+            @Override
+            public String next() throws IOException {
+                if (!started) {
+                    started = true;
+                    nextNew = nextAccepted();
+                }
+                if (nextNew == null || (i < unsorted.size() && unsorted.get(i).compareTo(nextNew) <= 0)) {
+                    return i < unsorted.size() ? unsorted.get(i++) : null;
+                }
+                String line = nextNew;
+                nextNew = nextAccepted();
+                return line;
+            }
+
+            private String nextAccepted() throws IOException {
+                while (contacts.hasNext()) {
+                    String line = contacts.next().toString();
+                    if (previous != null && line.compareTo(previous) < 0)
+                        throw new IOException("Contacts are not in order : " + line);
+                    previous = line;
+                    long number = Contact.getNumber(line);
+                    long offset = numberIndex.find(number);
+                    String storedLine = offset != NumberIndex.NOT_FOUND
+                            ? NumberIndex.readLine(contactList, offset) : deltaNumbers.get(number);
+                    if (storedLine != null) {
+                        rejects.add(new InputDuplicateNumberException("The Number is Already Available in the " +
+                                "Contact List : " + storedLine));
+                    } else {
+                        inserted.increment();
+                        return line;
+                    }
+                }
+                return null;
+            }
+        }, sortedSize);
+        return inserted.intValue();
+    }
+
+    /**
+     * <tt>rewrite(lines, sortedSize)</tt> merges sorted lines with the sorted part of the file.
+     * The merged list is written to a temporary file which then replaces the file, and the delta
+     * segment is deleted. The caller should hold the <tt>ContactListLock</tt>.
+     *
+     * @param lines the sorted lines which are not in the sorted part of the file
+     * @param sortedSize end of the sorted part of the file
+     * @throws IOException If the file cannot be read or written
+     */
+    private void rewrite(LineSource lines, long sortedSize) throws IOException {
+        // Merging the sorted lines with the sorted file into a temporary file
+        long writeStart = System.nanoTime();
+        OperationStats.addBytesRead(contactList.length());
+        File tempFile = File.createTempFile("contact_list", ".tmp", contactList.getAbsoluteFile().getParentFile());
+        NumberIndex.Builder index = new NumberIndex.Builder();
+        long linesRead = 0;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new SortedPartInputStream(new FileInputStream(contactList), sortedSize)));
+             PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(tempFile)))) {
+            String next = lines.next();
+            long offset = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                linesRead++;
+                while (next != null && next.compareTo(line) < 0) {
+                    offset = writeLine(out, next, index, offset);
+                    next = lines.next();
+                }
+                offset = writeLine(out, line, index, offset);
+            }
+            while (next != null) {
+                offset = writeLine(out, next, index, offset);
+                next = lines.next();
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        } finally {
+            OperationStats.addLinesScanned(linesRead);
+        }
+        ContactListLock.replace(tempFile, contactList);
+        index.save(contactList);
+        DeltaSegment.delete(contactList);
+        OperationStats.addWriteTime(System.nanoTime() - writeStart);
+        OperationStats.addBytesWritten(contactList.length() + NumberIndex.indexFile(contactList).length());
+        lookupCache.invalidate(contactList);
+    }
+
+    /**
+     * <tt>writeLine(out, line, index, offset)</tt> writes a line to the file
+     * and adds it to the number index.
+     *
+     * @param out writer of the file
+     * @param line the line which is to be written
+     * @param index index builder of the file
+     * @param offset byte offset of the line
+     * @return byte offset of the next line
+     */
+    private static long writeLine(PrintWriter out, String line, NumberIndex.Builder index, long offset) {
+        out.println(line);
+        index.add(Contact.getNumber(line), offset);
+        return offset + line.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR_LENGTH;
+    }
+
+    /**
+     * Sorted lines which are merged with the file, <tt>next()</tt> returns null after the last line
+     */
+    private interface LineSource {
+        String next() throws IOException;
+    }
+
+    /**
+     * A lookup of the file
+     */
+    private interface Lookup {
+        List<Contact> read() throws IOException;
+    }
+
+    /**
+     * <tt>cached(operation, query, lookup)</tt> returns the cached result of a query, or reads and caches it.
+     * The lookup is measured as an operation of the <tt>OperationStats</tt>.
+     *
+     * @param operation name of the lookup, such as "name"
+     * @param query the name or the number
+     * @param lookup reads the result from the file
+     * @return the matching contacts in order
+     * @throws IOException If there are no file in the path
+     */
+    private List<Contact> cached(String operation, String query, Lookup lookup) throws IOException {
+        OperationStats.begin(operation, contactList.getPath(), query);
+        try {
+            String key = operation + ":" + query;
+            List<Contact> contacts = lookupCache.get(contactList, key);
+            if (contacts != null) {
+                OperationStats.setCacheHit();
+            } else {
+                String identity = lookupCache.identity(contactList);
+                contacts = lookup.read();
+                lookupCache.put(contactList, key, identity, contacts);
+            }
+            OperationStats.addMatches(contacts.size());
+            return contacts;
+        } finally {
+            OperationStats.end();
+        }
+    }
+
+    /**
+     * <tt>readTail(sortedSize)</tt> reads the lines after the sorted part of the file, which were
+     * appended by other programs.
+     *
+     * @param sortedSize end of the sorted part of the file
+     * @return the lines in order
+     * @throws IOException If the file cannot be read
+     */
+    private ArrayList<String> readTail(long sortedSize) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        if (sortedSize >= contactList.length()) return lines;
+        try (FileInputStream file = new FileInputStream(contactList)) {
+            file.getChannel().position(sortedSize);
+            BufferedReader in = new BufferedReader(new InputStreamReader(file), 1 << 16);
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+            }
+            OperationStats.addBytesRead(file.getChannel().position() - sortedSize);
+        }
+        OperationStats.addLinesScanned(lines.size());
+        Collections.sort(lines);
+        return lines;
+    }
+
+    /**
+     * <tt>readUnsorted(sortedSize)</tt> reads the lines which are not in the sorted part of the file,
+     * the lines appended by other programs and the delta segment.
+     *
+     * @param sortedSize end of the sorted part of the file
+     * @return the lines in order
+     * @throws IOException If the file or the delta segment cannot be read
+     */
+    private ArrayList<String> readUnsorted(long sortedSize) throws IOException {
+        ArrayList<String> lines = DeltaSegment.read(contactList);
+        if (sortedSize < contactList.length()) {
+            lines.addAll(readTail(sortedSize));
+            Collections.sort(lines);
+        }
+        return lines;
+    }
+
+    /**
+     * <tt>SortedPartInputStream</tt> reads the sorted part of the file and stops at its end.
+     */
+    private static class SortedPartInputStream extends FilterInputStream {
+        private long remaining;
+
+        /**
+         * Constructs a <tt>SortedPartInputStream</tt>.
+         *
+         * @param in the file
+         * @param sortedSize end of the sorted part of the file
+         */
+        SortedPartInputStream(InputStream in, long sortedSize) {
+            super(in);
+            this.remaining = sortedSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b != -1) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+    }
+
+    /**
+     * <tt>mergeDelta(lines, deltaLines)</tt> merges the matching lines of the file with the
+     * matching lines of the delta segment, so they are in the same order as the compacted file.
+     *
+     * @param lines matching lines of the file
+     * @param deltaLines matching lines of the delta segment
+     * @return the contacts of the merged lines
+     */
+    private static List<Contact> mergeDelta(List<String> lines, List<String> deltaLines) {
+        ArrayList<Contact> contacts = new ArrayList<>(lines.size() + deltaLines.size());
+        int i = 0;  // next line of the delta segment
+        for (String line : lines) {
+            while (i < deltaLines.size() && deltaLines.get(i).compareTo(line) < 0) {
+                contacts.add(Contact.parse(deltaLines.get(i++)));
+            }
+            contacts.add(Contact.parse(line));
+        }
+        while (i < deltaLines.size()) {
+            contacts.add(Contact.parse(deltaLines.get(i++)));
+        }
+        return contacts;
+    }
+
+    /**
+     * <tt>mapContactList()</tt> memory maps the file. The mapping of every file is reused
+     * while the modification time and the size of the file are unchanged.
+     *
+     * @return the mapped file
+     * @throws IOException If there are no file in the path
+     */
+    MappedByteBuffer mapContactList() throws IOException {
+        String path = contactList.getCanonicalPath();
+        String stamp = contactList.lastModified() + ":" + contactList.length();
+        Mapping mapping = MAPPINGS.get(path);
+        if (mapping == null || !mapping.stamp.equals(stamp)) {
+            try (FileChannel channel = FileChannel.open(contactList.toPath(), StandardOpenOption.READ)) {
+                mapping = new Mapping(stamp, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+            MAPPINGS.put(path, mapping);
+        }
+        return mapping.buffer;
+    }
+
+    /**
+     * A mapped contact list and its modification time and size
+     */
+    private static class Mapping {
+        final String stamp;
+        final MappedByteBuffer buffer;
+
+        Mapping(String stamp, MappedByteBuffer buffer) {
+            this.stamp = stamp;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * <tt>lineStart(buf, position)</tt> returns the start of the line which contains the position.
+     *
+     * @param buf mapped file
+     * @param position byte position
+     * @return byte offset of the line
+     */
+    private static int lineStart(MappedByteBuffer buf, int position) {
+        while (position > 0 && buf.get(position - 1) != '\n') position--;
+        return position;
+    }
+
+    /**
+     * <tt>nextLineStart(buf, start)</tt> returns the start of the line after the given line.
+     *
+     * @param buf mapped file
+     * @param start byte offset of the line
+     * @return byte offset of the next line, or the size of the buffer
+     */
+    private static int nextLineStart(MappedByteBuffer buf, int start) {
+        while (start < buf.limit() && buf.get(start) != '\n') start++;
+        return Math.min(start + 1, buf.limit());
+    }
+
+    /**
+     * <tt>comparePrefix(buf, start, prefix)</tt> compares the beginning of a line with a prefix.
+     *
+     * @param buf mapped file
+     * @param start byte offset of the line
+     * @param prefix the prefix bytes
+     * @return 0 if the line starts with the prefix, a negative value if the line is less than the prefix
+     * and a positive value if it is greater than the prefix
+     */
+    private static int comparePrefix(MappedByteBuffer buf, int start, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (start + i >= buf.limit()) return -1;
+            int b = buf.get(start + i) & 0xFF;
+            if (b == '\n' || b == '\r') return -1;  // line is shorter than the prefix
+            if (b != (prefix[i] & 0xFF)) return b - (prefix[i] & 0xFF);
+        }
+        return 0;
+    }
+
+    /**
+     * <tt>decodeLine(buf, start)</tt> decodes a line of the mapped file.
+     *
+     * @param buf mapped file
+     * @param start byte offset of the line
+     * @return the line without the line separator
+     */
+    private static String decodeLine(MappedByteBuffer buf, int start) {
+        int end = start;
+        while (end < buf.limit() && buf.get(end) != '\n' && buf.get(end) != '\r') end++;
+        byte[] bytes = new byte[end - start];
+        buf.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
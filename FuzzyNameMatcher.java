@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <tt>FuzzyNameMatcher</tt> ranks the candidate lines of a misspelled name by the edit distance
+ * and by the Soundex codes of the names.
+ *
+ * <p> Only the candidates found by the <tt>TrigramIndex</tt> are ranked, so the edit distance is never
+ * calculated against the whole contact list. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class FuzzyNameMatcher {
+    // Soundex codes of the letters a to z, '0' for the vowels and '-' for h and w
+    private static final String SOUNDEX_CODES = "0123012-02245501262301-202";
+
+    /**
+     * A candidate line and its scores
+     */
+    private static class Match {
+        final String line;
+        final int distance;     // edit distance of the closest part of the name
+        final int phonetic;     // number of words of the query with a matching Soundex code
+        final int extra;        // difference of the lengths of the name and the query
+
+        Match(String line, int distance, int phonetic, int extra) {
+            this.line = line;
+            this.distance = distance;
+            this.phonetic = phonetic;
+            this.extra = extra;
+        }
+    }
+
+    /**
+     * <tt>rank(name, lines)</tt> returns the lines whose names are similar to the given name, the closest first.
+     *
+     * <p> A line matches if the edit distance of its name (or of any run of its words with the same
+     * number of words as the given name) is at most a third of the length of the given name, or if the
+     * Soundex codes of all the words of the given name are in its name. </p>
+     *
+     * @param name the misspelled name
+     * @param lines candidate lines in "Name: 808-779-1466" format
+     * @return the matching contacts, by the edit distance, then by the Soundex matches, then by the
+     * difference of the lengths of the names, so "Mary Anne" comes before "Mary Anne David", and then in order
+     */
+    static List<Contact> rank(String name, Collection<String> lines) {
+        String query = name.trim().toLowerCase();
+        String[] queryWords = query.split(" +");
+        String[] queryCodes = new String[queryWords.length];
+        for (int i = 0; i < queryWords.length; i++) {
+            queryCodes[i] = soundex(queryWords[i]);
+        }
+        int maxDistance = Math.max(1, query.length() / 3);
+
+        // Scoring the candidates
+        ArrayList<Match> matches = new ArrayList<>();
+        for (String line : lines) {
+            int colon = line.indexOf(':');
+            String candidate = (colon < 0 ? line : line.substring(0, colon)).trim().toLowerCase();
+            String[] words = candidate.split(" +");
+
+            // Comparing with the whole name and with the runs of words
+            int distance = editDistance(query, candidate);
+            for (int i = 0; i + queryWords.length <= words.length; i++) {
+                String run = String.join(" ", Arrays.copyOfRange(words, i, i + queryWords.length));
+                distance = Math.min(distance, editDistance(query, run));
+            }
+
+            int phonetic = 0;
+            for (String code : queryCodes) {
+                for (String word : words) {
+                    if (code.equals(soundex(word))) {
+                        phonetic++;
+                        break;
+                    }
+                }
+            }
+            if (distance <= maxDistance || phonetic == queryCodes.length) {
+                matches.add(new Match(line, distance, phonetic, Math.abs(candidate.length() - query.length())));
+            }
+        }
+
+        matches.sort(Comparator.<Match>comparingInt(match -> match.distance)
+                .thenComparingInt(match -> -match.phonetic)
+                .thenComparingInt(match -> match.extra)
+                .thenComparing(match -> match.line));
+        ArrayList<Contact> contacts = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            contacts.add(Contact.parse(match.line));
+        }
+        return contacts;
+    }
+
+    /**
+     * <tt>editDistance(a, b)</tt> calculates the Levenshtein distance of two strings.
+     *
+     * @param a a string
+     * @param b the other string
+     * @return minimum number of insertions, deletions and substitutions which change a to b
+     */
+    static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * <tt>soundex(word)</tt> calculates the American Soundex code of a word, such as R163 for Robert
+     * and Rupert.
+     *
+     * @param word a word
+     * @return the code, an upper case letter and 3 digits, or an empty string if the word has no letters
+     */
+    static String soundex(String word) {
+        StringBuilder code = new StringBuilder(4);
+        char last = 0;  // code of the previous letter
+        for (int i = 0; i < word.length() && code.length() < 4; i++) {
+            char c = Character.toLowerCase(word.charAt(i));
+            if (c < 'a' || c > 'z') continue;
+            char digit = SOUNDEX_CODES.charAt(c - 'a');
+            if (code.length() == 0) {
+                code.append(Character.toUpperCase(c));
+            } else if (digit != '0' && digit != '-' && digit != last) {
+                code.append(digit);
+            }
+            // h and w do not separate the letters with the same code, the vowels do
+            if (digit != '-') last = digit;
+        }
+        if (code.length() == 0) return "";
+        while (code.length() < 4) code.append('0');
+        return code.toString();
+    }
+}
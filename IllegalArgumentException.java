@@ -0,0 +1,24 @@
+import java.io.IOException;
+
+/**
+ * <tt>IllegalArgumentException</tt> extends IOException.
+ * This exception is thrown If invalid arguments are found.
+ *
+ */
+class IllegalArgumentException extends IOException {
+    /**
+     * Constructs a <tt>IllegalArgumentException</tt> with default error detail message.
+     *
+     */
+    public IllegalArgumentException() {}
+
+    /**
+     * Constructs a <tt>IllegalArgumentException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public IllegalArgumentException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * <tt>InputDuplicateNumberException</tt> extends IOException.
+ * This exception is thrown when duplicate numbers are inputted.
+ *
+ */
+class InputDuplicateNumberException extends DuplicateNumberException {
+    /**
+     * Constructs a <tt>InputDuplicateNumberException</tt> with default error detail message.
+     *
+     */
+    public InputDuplicateNumberException() {}
+
+    /**
+     * Constructs a <tt>InputDuplicateNumberException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public InputDuplicateNumberException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * <tt>InsufficientInputsException</tt> extends IOException.
+ * This exception is thrown when the app receives less than 2 arguments
+ *
+ */
+class InsufficientInputsException extends MissingArgumentsException {
+    /**
+     * Constructs a <tt>InsufficientInputsException</tt> with default error detail message.
+     *
+     */
+    public InsufficientInputsException() {}
+
+    /**
+     * Constructs a <tt>InsufficientInputsException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public InsufficientInputsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * <tt>InvalidFileNameException</tt> extends IOException.
+ * This exception is thrown If The first input is not a proper name of a text file
+ *
+ */
+class InvalidFileNameException extends MissingArgumentsException {
+    /**
+     * Constructs a <tt>InvalidFileNameException</tt> with default error detail message.
+     *
+     */
+    public InvalidFileNameException() {}
+
+    /**
+     * Constructs a <tt>InvalidFileNameException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public InvalidFileNameException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * <tt>InvalidNameException</tt> extends IOException.
+ * This exception is thrown If the name includes of symbols and numbers
+ *
+ */
+class InvalidNameException extends IllegalArgumentException {
+    /**
+     * Constructs a <tt>InvalidNameException</tt> with default error detail message.
+     *
+     */
+    public InvalidNameException() {}
+
+    /**
+     * Constructs a <tt>InvalidNameException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public InvalidNameException(String message) {
+        super(message);
+    }
+}
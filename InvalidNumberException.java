@@ -0,0 +1,23 @@
+/**
+ * <tt>InvalidNumberException</tt> extends IOException.
+ * This exception is thrown If the number includes symbols and letters or
+ * number of digits not 10
+ *
+ */
+class InvalidNumberException extends IllegalArgumentException {
+    /**
+     * Constructs a <tt>InvalidNumberException</tt> with default error detail message.
+     *
+     */
+    public InvalidNumberException() {}
+
+    /**
+     * Constructs a <tt>InvalidNumberException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public InvalidNumberException(String message) {
+        super(message);
+    }
+}
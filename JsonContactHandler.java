@@ -0,0 +1,118 @@
+import org.json.simple.parser.ContentHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <tt>JsonContactHandler</tt> receives the events of json-simple's streaming parser
+ * for a json array of contacts in the following format and passes the contacts on in chunks.
+ *
+ * <code>
+ * [{"name": "Mary Anne", "number": "8087791466"}, ...]
+ * </code>
+ *
+ * <p> Only one chunk of contacts is held in memory at a time. What the consumer keeps of
+ * every chunk is up to it, such as the numbers of the contacts to find repeated numbers. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class JsonContactHandler implements ContentHandler {
+    /**
+     * <tt>ChunkConsumer</tt> consumes a chunk of contacts. Each contact is a <tt>[name, number]</tt>
+     * array and any of them may be null if it is missing in the json object.
+     */
+    interface ChunkConsumer {
+        void accept(List<String[]> chunk) throws IOException;
+    }
+
+    private final int chunkSize;
+    private final ChunkConsumer consumer;
+    private ArrayList<String[]> chunk;
+    private int objectDepth = 0;    // to ignore nested objects
+    private String key = null;      // key of the current entry
+    private String name = null;
+    private String number = null;
+
+    /**
+     * Constructs a <tt>JsonContactHandler</tt>.
+     *
+     * @param chunkSize maximum number of contacts in a chunk
+     * @param consumer consumer of the chunks
+     */
+    JsonContactHandler(int chunkSize, ChunkConsumer consumer) {
+        this.chunkSize = chunkSize;
+        this.consumer = consumer;
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    @Override
+    public void startJSON() {}
+
+    @Override
+    public void endJSON() throws IOException {
+        flush();
+    }
+
+    @Override
+    public boolean startObject() {
+        if (++objectDepth == 1) {
+            name = null;
+            number = null;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObject() throws IOException {
+        if (--objectDepth == 0) {
+            chunk.add(new String[] {name, number});
+            if (chunk.size() >= chunkSize) flush();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        if (objectDepth == 1) this.key = key;
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        if (objectDepth == 1) key = null;
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        return true;
+    }
+
+    @Override
+    public boolean endArray() {
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) {
+        if (objectDepth != 1 || value == null) return true;
+        if ("name".equals(key)) {
+            name = value.toString();
+        } else if ("number".equals(key)) {
+            number = value.toString();
+        }
+        return true;
+    }
+
+    /**
+     * <tt>flush()</tt> passes the collected contacts to the consumer.
+     *
+     * @throws IOException If the consumer fails
+     */
+    private void flush() throws IOException {
+        if (chunk.isEmpty()) return;
+        consumer.accept(chunk);
+        chunk = new ArrayList<>(chunkSize);
+    }
+}
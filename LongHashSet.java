@@ -0,0 +1,85 @@
+import java.util.Arrays;
+
+/**
+ * <tt>LongHashSet</tt> is a set of phone numbers which keeps them as primitive longs, so a large
+ * import does not box a <tt>Long</tt> for every number.
+ *
+ * <p> The numbers are kept in an open addressing table with linear probing, which is doubled
+ * when it is half full. Only non negative numbers can be stored. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class LongHashSet {
+    // Marks an empty slot
+    private static final long EMPTY = -1;
+
+    private long[] slots = newSlots(16);
+    private int size = 0;
+
+    /**
+     * <tt>add(number)</tt> adds a number to the set.
+     *
+     * @param number non negative number
+     * @return true if the number was not in the set
+     */
+    boolean add(long number) {
+        int slot = find(slots, number);
+        if (slots[slot] == number) return false;
+        slots[slot] = number;
+        if (++size * 2 > slots.length) grow();
+        return true;
+    }
+
+    /**
+     * <tt>contains(number)</tt> checks whether a number is in the set.
+     *
+     * @param number non negative number
+     * @return true if the number is in the set
+     */
+    boolean contains(long number) {
+        return slots[find(slots, number)] == number;
+    }
+
+    /**
+     * @return number of numbers in the set
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * <tt>grow()</tt> doubles the table and adds the numbers to it again.
+     */
+    private void grow() {
+        long[] grown = newSlots(slots.length * 2);
+        for (long number : slots) {
+            if (number != EMPTY) grown[find(grown, number)] = number;
+        }
+        slots = grown;
+    }
+
+    /**
+     * <tt>find(slots, number)</tt> returns the slot of a number, or the empty slot where it belongs.
+     *
+     * @param slots the table
+     * @param number non negative number
+     * @return index of the slot
+     */
+    private static int find(long[] slots, long number) {
+        long hash = number * 0x9E3779B97F4A7C15L;
+        int mask = slots.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (slots[slot] != EMPTY && slots[slot] != number) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * @param length number of slots, a power of 2
+     * @return a table of empty slots
+     */
+    private static long[] newSlots(int length) {
+        long[] slots = new long[length];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+}
@@ -0,0 +1,168 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <tt>LookupCache</tt> is a bounded LRU cache of the results of the lookups of contact lists.
+ *
+ * <p> A result is cached with the identity of its contact list: the size and the modification time of
+ * the contact list and its delta segment, and the write generation of the contact list in this process,
+ * which is kept by its canonical path, so a write does not drop the results of other lists. A cached result is
+ * only returned while the identity is unchanged, so a contact list which is written by another process
+ * is never answered from the cache. The writes of this process drop the cached results of the
+ * contact list with <tt>invalidate</tt>. </p>
+ *
+ * <p> The cache lives as long as the process, so it pays off in the daemon mode. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public class LookupCache {
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+    // Write generations by the canonical path of the contact list, incremented by every write of this process
+    private final HashMap<String, Long> generations = new HashMap<>();
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * A cached result and the identity of the contact list which it was read from
+     */
+    private static class Entry {
+        final String identity;
+        final List<Contact> contacts;
+
+        Entry(String identity, List<Contact> contacts) {
+            this.identity = identity;
+            this.contacts = contacts;
+        }
+    }
+
+    /**
+     * Constructs a <tt>LookupCache</tt>.
+     *
+     * @param capacity maximum number of cached results, 0 to disable the cache
+     */
+    public LookupCache(int capacity) {
+        this.capacity = capacity;
+        // Access ordered, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= LookupCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * <tt>get(contactList, query)</tt> returns the cached result of a query.
+     *
+     * @param contactList contact list
+     * @param query the query, such as "name:Mary"
+     * @return a copy of the cached contacts, or null if the result is not cached or out of date
+     */
+    public synchronized List<Contact> get(File contactList, String query) {
+        String key = contactList.getAbsolutePath() + "\n" + query;
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.identity.equals(identity(contactList))) {
+            if (entry != null) entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entry.contacts);
+    }
+
+    /**
+     * <tt>put(contactList, query, contacts)</tt> caches the result of a query.
+     *
+     * @param contactList contact list
+     * @param query the query, such as "name:Mary"
+     * @param identity identity of the contact list before the result was read
+     * @param contacts the result
+     */
+    public synchronized void put(File contactList, String query, String identity, List<Contact> contacts) {
+        if (capacity == 0) return;
+        entries.put(contactList.getAbsolutePath() + "\n" + query, new Entry(identity, new ArrayList<>(contacts)));
+    }
+
+    /**
+     * <tt>invalidate(contactList)</tt> drops the cached results of a contact list after a write.
+     *
+     * @param contactList contact list
+     */
+    public synchronized void invalidate(File contactList) {
+        generations.merge(canonicalPath(contactList), 1L, Long::sum);
+        String prefix = contactList.getAbsolutePath() + "\n";
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * <tt>identity(contactList)</tt> returns the identity of a contact list. It should be taken before
+     * the contact list is read, so a result is never cached with a newer identity than its data.
+     *
+     * @param contactList contact list
+     * @return size and modification time of the contact list and its delta segment, and its write generation
+     */
+    public synchronized String identity(File contactList) {
+        File deltaFile = DeltaSegment.deltaFile(contactList);
+        return contactList.length() + ":" + contactList.lastModified() + ":"
+                + deltaFile.length() + ":" + deltaFile.lastModified() + ":"
+                + generations.getOrDefault(canonicalPath(contactList), 0L);
+    }
+
+    /**
+     * @param contactList contact list
+     * @return canonical path of the contact list, or its absolute path if it cannot be resolved
+     */
+    private static String canonicalPath(File contactList) {
+        try {
+            return contactList.getCanonicalPath();
+        } catch (IOException e) {
+            return contactList.getAbsolutePath();
+        }
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups which were not cached or out of date
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of results evicted to keep the cache within its capacity
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the statistics of the cache in "hits=1 misses=2 evictions=0 size=2/4096" format
+     */
+    @Override
+    public synchronized String toString() {
+        return "hits=" + hits + " misses=" + misses + " evictions=" + evictions + " size=" + entries.size()
+                + "/" + capacity;
+    }
+}
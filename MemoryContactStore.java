@@ -0,0 +1,396 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * <tt>MemoryContactStore</tt> is a <tt>ContactStore</tt> which keeps the contacts in memory.
+ *
+ * <p> The contacts are not stored as objects. All the names are stored in a single <tt>char[]</tt>
+ * arena with their offsets and lengths in <tt>int[]</tt>s, and the numbers are stored in a
+ * <tt>long[]</tt>. A contact is an index to these arrays. Two sorted <tt>int[]</tt>s of these indexes
+ * keep the contacts in the order of their lines and in the order of their numbers, so both names
+ * and numbers are binary searched. <tt>Contact</tt> objects are created only for the results. </p>
+ *
+ * <p> A <tt>MemoryContactStore</tt> is thread safe. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public class MemoryContactStore implements ContactStore {
+    // Length of ": 808-779-1466" which follows the name in a line
+    private static final int NUMBER_LENGTH = 14;
+
+    private char[] names = new char[1024];
+    private int namesLength = 0;
+    private int[] nameOffsets = new int[64];
+    private int[] nameLengths = new int[64];
+    private long[] numbers = new long[64];
+    private int size = 0;
+
+    // Indexes of the contacts sorted by the line and by the number
+    private int[] byLine = new int[0];
+    private int[] byNumber = new int[0];
+
+    /**
+     * <tt>copyOf(store)</tt> creates a <tt>MemoryContactStore</tt> with all the contacts of another store.
+     * The contacts are copied as they are, including any duplicate numbers.
+     *
+     * @param store the store which is to be copied, such as a <tt>FileContactStore</tt>
+     * @return the new store
+     * @throws IOException If the contacts of the store cannot be read
+     */
+    public static MemoryContactStore copyOf(ContactStore store) throws IOException {
+        MemoryContactStore copy = new MemoryContactStore();
+        ArrayList<Contact> contacts = new ArrayList<>();
+        try (Stream<Contact> stream = store.stream()) {
+            stream.forEach(contacts::add);
+        }
+        copy.merge(contacts);
+        return copy;
+    }
+
+    /**
+     * @return number of contacts
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * <tt>findByName(name)</tt> returns the contacts whose names start with the given name.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     */
+    @Override
+    public synchronized List<Contact> findByName(String name) {
+        // Finding the first line which is not less than the name
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comparePrefix(byLine[mid], name) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        // Collecting the matching run
+        ArrayList<Contact> contacts = new ArrayList<>();
+        for (int i = lo; i < size && comparePrefix(byLine[i], name) == 0; i++) {
+            contacts.add(contact(byLine[i]));
+        }
+        return contacts;
+    }
+
+    /**
+     * <tt>findContaining(name)</tt> returns the contacts which contain the given name anywhere.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     */
+    @Override
+    public synchronized List<Contact> findContaining(String name) {
+        ArrayList<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int id = byLine[i];
+            int length = nameLengths[id] + NUMBER_LENGTH;
+            for (int start = 0; start + name.length() <= length; start++) {
+                if (regionMatches(id, start, name)) {
+                    contacts.add(contact(id));
+                    break;
+                }
+            }
+        }
+        return contacts;
+    }
+
+    /**
+     * <tt>findByNumber(number)</tt> returns the contacts of a phone number.
+     *
+     * @param number phone number
+     * @return the matching contacts in order
+     */
+    @Override
+    public synchronized List<Contact> findByNumber(long number) {
+        ArrayList<Contact> contacts = new ArrayList<>();
+        for (int i = firstByNumber(number); i < size && numbers[byNumber[i]] == number; i++) {
+            contacts.add(contact(byNumber[i]));
+        }
+        return contacts;
+    }
+
+    /**
+     * <tt>insert(name, number)</tt> inserts a contact.
+     *
+     * @param name name
+     * @param number phone number
+     * @throws InputDuplicateNumberException If the phone number is already stored
+     */
+    @Override
+    public synchronized void insert(String name, long number) throws InputDuplicateNumberException {
+        List<InputDuplicateNumberException> rejects = insertAll(Collections.singletonList(new Contact(name, number)));
+        if (!rejects.isEmpty()) throw rejects.get(0);
+    }
+
+    /**
+     * <tt>insertAll(contacts)</tt> inserts a batch of contacts. The batch is sorted once
+     * and merged with the sorted indexes.
+     *
+     * @param contacts the contacts which are to be inserted
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the input order
+     */
+    @Override
+    public synchronized List<InputDuplicateNumberException> insertAll(Collection<Contact> contacts) {
+        // Removing the duplicates in the input order
+        ArrayList<InputDuplicateNumberException> rejects = new ArrayList<>();
+        ArrayList<Contact> accepted = new ArrayList<>(contacts.size());
+        HashMap<Long, Contact> batchNumbers = new HashMap<>();
+        for (Contact contact : contacts) {
+            long number = contact.getNumber();
+            int i = firstByNumber(number);
+            Contact stored = i < size && numbers[byNumber[i]] == number
+                    ? contact(byNumber[i]) : batchNumbers.putIfAbsent(number, contact);
+            if (stored != null) {
+                rejects.add(new InputDuplicateNumberException("The Number is Already Available in the " +
+                        "Contact List : " + stored));
+                continue;
+            }
+            accepted.add(contact);
+        }
+        merge(accepted);
+        return rejects;
+    }
+
+    /**
+     * <tt>insertSorted(contacts)</tt> inserts contacts which are already in order. They are held in
+     * memory like every other contact of this store, so they are checked and merged as a batch.
+     *
+     * @param contacts the contacts which are to be inserted, in order
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the order of the contacts
+     * @throws IOException If the contacts are not in order
+     */
+    @Override
+    public synchronized List<InputDuplicateNumberException> insertSorted(Iterator<Contact> contacts)
+            throws IOException {
+        ArrayList<Contact> batch = new ArrayList<>();
+        while (contacts.hasNext()) {
+            Contact contact = contacts.next();
+            if (!batch.isEmpty() && batch.get(batch.size() - 1).compareTo(contact) > 0) {
+                throw new IOException("Contacts are not in order : " + contact);
+            }
+            batch.add(contact);
+        }
+        return insertAll(batch);
+    }
+
+    /**
+     * <tt>stream()</tt> returns all the contacts in order. The stream is a snapshot, so the contacts
+     * inserted after this call are not in it.
+     *
+     * @return stream of the contacts
+     */
+    @Override
+    public synchronized Stream<Contact> stream() {
+        int[] snapshot = Arrays.copyOf(byLine, size);
+        return Arrays.stream(snapshot).mapToObj(this::contact);
+    }
+
+    /**
+     * <tt>merge(contacts)</tt> appends the contacts to the arrays and merges them into the sorted indexes.
+     *
+     * @param contacts the contacts which are to be added
+     */
+    private synchronized void merge(List<Contact> contacts) {
+        if (contacts.isEmpty()) return;
+        int oldSize = size;
+        ensureCapacity(size + contacts.size());
+        for (Contact contact : contacts) {
+            String name = contact.getName();
+            if (namesLength + name.length() > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + name.length()));
+            }
+            name.getChars(0, name.length(), names, namesLength);
+            nameOffsets[size] = namesLength;
+            nameLengths[size] = name.length();
+            numbers[size] = contact.getNumber();
+            namesLength += name.length();
+            size++;
+        }
+
+        // Sorting the new contacts and merging them with the old ones
+        int[] newIds = new int[size - oldSize];
+        for (int i = 0; i < newIds.length; i++) {
+            newIds[i] = oldSize + i;
+        }
+        int[] sorted = newIds.clone();
+        sort(sorted, newIds.clone(), 0, sorted.length, false);
+        byLine = mergeSorted(byLine, sorted, false);
+        sorted = newIds.clone();
+        sort(sorted, newIds, 0, sorted.length, true);
+        byNumber = mergeSorted(byNumber, sorted, true);
+    }
+
+    /**
+     * <tt>ensureCapacity(capacity)</tt> grows the arrays of the contacts.
+     *
+     * @param capacity the required number of contacts
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= numbers.length) return;
+        int newCapacity = Math.max(numbers.length * 2, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, newCapacity);
+        nameLengths = Arrays.copyOf(nameLengths, newCapacity);
+        numbers = Arrays.copyOf(numbers, newCapacity);
+    }
+
+    /**
+     * <tt>sort(ids, temp, from, to, byNumber)</tt> merge sorts a range of contact indexes.
+     *
+     * @param ids the indexes which are to be sorted
+     * @param temp a copy of the indexes
+     * @param from first index of the range
+     * @param to index after the range
+     * @param byNumber true to sort by the number, false to sort by the line
+     */
+    private void sort(int[] ids, int[] temp, int from, int to, boolean byNumber) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        // Sorting the halves of temp into ids and merging them back
+        sort(temp, ids, from, mid, byNumber);
+        sort(temp, ids, mid, to, byNumber);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && compare(temp[i], temp[j], byNumber) <= 0)) {
+                ids[k] = temp[i++];
+            } else {
+                ids[k] = temp[j++];
+            }
+        }
+    }
+
+    /**
+     * <tt>mergeSorted(ids, newIds, byNumber)</tt> merges two sorted arrays of contact indexes.
+     *
+     * @param ids sorted indexes of the old contacts
+     * @param newIds sorted indexes of the new contacts
+     * @param byNumber true if the indexes are sorted by the number, false if sorted by the line
+     * @return the merged indexes
+     */
+    private int[] mergeSorted(int[] ids, int[] newIds, boolean byNumber) {
+        int[] merged = new int[ids.length + newIds.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            if (j >= newIds.length || (i < ids.length && compare(ids[i], newIds[j], byNumber) <= 0)) {
+                merged[k] = ids[i++];
+            } else {
+                merged[k] = newIds[j++];
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * <tt>compare(a, b, byNumber)</tt> compares two contacts by the number and then by the line,
+     * or only by the line.
+     *
+     * @param a index of a contact
+     * @param b index of the other contact
+     * @param byNumber true to compare the numbers first
+     * @return a negative value, zero or a positive value as the first contact is less than,
+     * equal to or greater than the other
+     */
+    private int compare(int a, int b, boolean byNumber) {
+        if (byNumber && numbers[a] != numbers[b]) return Long.compare(numbers[a], numbers[b]);
+        int lengthA = nameLengths[a] + NUMBER_LENGTH;
+        int lengthB = nameLengths[b] + NUMBER_LENGTH;
+        for (int k = 0; k < Math.min(lengthA, lengthB); k++) {
+            char c = lineChar(a, k);
+            char d = lineChar(b, k);
+            if (c != d) return c - d;
+        }
+        return lengthA - lengthB;
+    }
+
+    /**
+     * <tt>comparePrefix(id, prefix)</tt> compares the beginning of the line of a contact with a prefix.
+     *
+     * @param id index of the contact
+     * @param prefix the prefix
+     * @return 0 if the line starts with the prefix, a negative value if the line is less than the prefix
+     * and a positive value if it is greater than the prefix
+     */
+    private int comparePrefix(int id, String prefix) {
+        int length = nameLengths[id] + NUMBER_LENGTH;
+        for (int k = 0; k < prefix.length(); k++) {
+            if (k >= length) return -1;     // line is shorter than the prefix
+            char c = lineChar(id, k);
+            if (c != prefix.charAt(k)) return c - prefix.charAt(k);
+        }
+        return 0;
+    }
+
+    /**
+     * <tt>regionMatches(id, start, text)</tt> checks whether the line of a contact contains
+     * the text at the given position.
+     *
+     * @param id index of the contact
+     * @param start position in the line
+     * @param text the text
+     * @return true if the text is at the position
+     */
+    private boolean regionMatches(int id, int start, String text) {
+        for (int k = 0; k < text.length(); k++) {
+            if (lineChar(id, start + k) != text.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * <tt>lineChar(id, k)</tt> returns a character of the line of a contact in "Name: 808-779-1466"
+     * format, without creating the line.
+     *
+     * @param id index of the contact
+     * @param k index of the character
+     * @return the character
+     */
+    private char lineChar(int id, int k) {
+        int length = nameLengths[id];
+        if (k < length) return names[nameOffsets[id] + k];
+        if (k == length) return ':';
+        if (k == length + 1) return ' ';
+        return Contact.formattedDigit(numbers[id], k - length - 2);
+    }
+
+    /**
+     * <tt>firstByNumber(number)</tt> binary searches the first contact of a number.
+     *
+     * @param number phone number
+     * @return position in <tt>byNumber</tt> of the first contact which is not less than the number
+     */
+    private int firstByNumber(long number) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (numbers[byNumber[mid]] < number) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * <tt>contact(id)</tt> creates the <tt>Contact</tt> of an index.
+     *
+     * @param id index of the contact
+     * @return the contact
+     */
+    private synchronized Contact contact(int id) {
+        return new Contact(new String(names, nameOffsets[id], nameLengths[id]), numbers[id]);
+    }
+}
@@ -0,0 +1,24 @@
+import java.io.IOException;
+
+/**
+ * <tt>MissingArgumentsException</tt> extends IOException.
+ * This exception is thrown If there are missing arguments
+ *
+ */
+class MissingArgumentsException extends IOException {
+    /**
+     * Constructs a <tt>MissingArgumentsException</tt> with default error detail message.
+     *
+     */
+    public MissingArgumentsException() {}
+
+    /**
+     * Constructs a <tt>MissingArgumentsException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public MissingArgumentsException(String message) {
+        super(message);
+    }
+}
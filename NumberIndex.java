@@ -0,0 +1,537 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * <tt>NumberIndex</tt> is a sidecar index file of a contact list which maps the phone numbers
+ * to the byte offsets of their lines in the contact list.
+ *
+ * <p> The index is stored next to the contact list as <tt>contact_list.txt.idx</tt>. It is an open
+ * addressing hash table of primitive longs, so a lookup costs a hash probe in the memory mapped
+ * index and one positioned read in the contact list. </p>
+ *
+ * <code>
+ * header : magic(int) version(int) mtime(long) size(long) capacity(int) count(int) sortedSize(long) checkpoint(long)
+ * slots  : capacity x [number(long) offset(long)]
+ * </code>
+ *
+ * <p> The modification time and the size of the contact list are recorded in the header.
+ * If they no longer match, the index is brought up to date. If the contact list only grew and the
+ * checkpoint (a CRC32 of its last <tt>CHECKPOINT_SIZE</tt> indexed bytes) still matches, only the
+ * appended lines are indexed. Otherwise the index is rebuilt from the contact list. The opened index
+ * of every contact list stays mapped and is reused while the contact list is unchanged. </p>
+ *
+ * <p> Lines which are appended by other programs are not in the alphabetical order. The end of
+ * the sorted part of the contact list is recorded as <tt>sortedSize</tt>, and the lines after it
+ * are read like the delta segment. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class NumberIndex {
+    // Index file extension which is appended to the contact list file name
+    static final String EXTENSION = ".idx";
+    // Flag of the offset if the number is stored more than one time
+    static final long DUPLICATE = 1L << 62;
+    // Returned by find if the number is not in the index
+    static final long NOT_FOUND = -1;
+
+    private static final int MAGIC = 0x434C4958;    // "CLIX"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 48;
+    private static final int SLOT_SIZE = 16;
+    private static final long EMPTY = -1;   // number of an empty slot
+    // Number of bytes at the end of the indexed contact list which are checked before indexing an appended tail
+    private static final int CHECKPOINT_SIZE = 4096;
+
+    // Opened indexes by the canonical path of the contact list, reused while the contact list is unchanged
+    private static final ConcurrentHashMap<String, NumberIndex> OPENED = new ConcurrentHashMap<>();
+
+    private final String path;  // canonical path of the contact list
+    private final long mtime;   // modification time of the contact list
+    private final long size;    // size of the contact list
+    private final long sortedSize;  // end of the sorted part of the contact list
+    private final MappedByteBuffer slots;
+    private final int capacity;
+
+    /**
+     * Constructs a <tt>NumberIndex</tt> over an opened index file.
+     * The mapping stays valid after the file is closed.
+     *
+     * @param channel opened index file
+     * @param header header of the index file
+     * @param path canonical path of the contact list
+     * @throws IOException If the index cannot be mapped
+     */
+    private NumberIndex(FileChannel channel, ByteBuffer header, String path) throws IOException {
+        this.path = path;
+        this.mtime = header.getLong(8);
+        this.size = header.getLong(16);
+        this.capacity = header.getInt(24);
+        this.sortedSize = header.getLong(32);
+        this.slots = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) capacity * SLOT_SIZE);
+    }
+
+    /**
+     * <tt>open(contactList)</tt> opens the index of a contact list.
+     * The index is rebuilt if it does not exist, the appended lines are indexed if the contact list
+     * grew and the index is rebuilt if the contact list is changed in any other way.
+     *
+     * <p> The index is brought up to date under the <tt>ContactListLock</tt> of the contact list, and
+     * checked again once the lock is held, as another thread or program may have done it meanwhile. </p>
+     *
+     * @param contactList contact list
+     * @return the opened index
+     * @throws IOException If the contact list or the index cannot be read
+     */
+    static NumberIndex open(File contactList) throws IOException {
+        String path = contactList.getCanonicalPath();
+        NumberIndex index = OPENED.get(path);
+        if (index != null && index.isCurrent(contactList)) return index;
+
+        File indexFile = indexFile(contactList);
+        if (!isFresh(contactList, indexFile)) {
+            ContactListLock lock = ContactListLock.acquire(contactList);
+            try {
+                if (!isFresh(contactList, indexFile) && !appendTail(contactList)) {
+                    rebuild(contactList);
+                }
+            } finally {
+                lock.close();
+            }
+        }
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            index = new NumberIndex(channel, header, path);
+            OPENED.put(path, index);
+            return index;
+        }
+    }
+
+    /**
+     * <tt>isCurrent(contactList)</tt> checks whether the contact list is unchanged since the index was opened.
+     *
+     * @param contactList contact list
+     * @return true if the modification time and the size of the contact list match
+     */
+    private boolean isCurrent(File contactList) {
+        return mtime == contactList.lastModified() && size == contactList.length();
+    }
+
+    /**
+     * @return end of the sorted part of the contact list, the lines after it are not in order
+     */
+    long getSortedSize() {
+        return sortedSize;
+    }
+
+    /**
+     * <tt>find(number)</tt> returns the byte offset of the line of the given number.
+     * If the number is stored more than one time, the offset of the first line is
+     * flagged with <tt>DUPLICATE</tt>.
+     *
+     * @param number phone number
+     * @return byte offset of the line, or <tt>NOT_FOUND</tt>
+     */
+    long find(long number) {
+        int mask = capacity - 1;
+        for (int slot = hash(number) & mask; ; slot = (slot + 1) & mask) {
+            long stored = slots.getLong(slot * SLOT_SIZE);
+            if (stored == EMPTY) return NOT_FOUND;
+            if (stored == number) return slots.getLong(slot * SLOT_SIZE + 8);
+        }
+    }
+
+    /**
+     * <tt>readLine(contactList, offset)</tt> reads the line which starts at the given offset
+     * with one positioned read.
+     *
+     * @param contactList contact list
+     * @param offset byte offset of the line, it may be flagged with <tt>DUPLICATE</tt>
+     * @return the line without the line separator
+     * @throws IOException If the contact list cannot be read
+     */
+    static String readLine(File contactList, long offset) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(contactList, "r")) {
+            in.seek(offset & ~DUPLICATE);
+            byte[] buf = new byte[128];
+            int len = 0;
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (len == buf.length) buf = Arrays.copyOf(buf, len * 2);
+                buf[len++] = (byte) b;
+            }
+            OperationStats.addLinesScanned(1);
+            OperationStats.addBytesRead(in.getFilePointer() - (offset & ~DUPLICATE));
+            if (len > 0 && buf[len - 1] == '\r') len--;
+            return new String(buf, 0, len, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * <tt>rebuild(contactList)</tt> scans the contact list and writes a new index. The modification time
+     * and the size are taken before the scan and only that many bytes are indexed, so the lines appended
+     * meanwhile are indexed as a tail by the next open.
+     *
+     * @param contactList contact list
+     * @throws IOException If the contact list or the index cannot be read or written
+     */
+    static void rebuild(File contactList) throws IOException {
+        long mtime = contactList.lastModified();
+        long size = contactList.length();
+        Builder builder = new Builder();
+        long sortedSize;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(contactList), 1 << 16)) {
+            sortedSize = indexLines(in, 0, size, new byte[0], builder);
+        }
+        builder.save(contactList, mtime, size, sortedSize);
+    }
+
+    /**
+     * <tt>appendTail(contactList)</tt> indexes the lines which are appended to the contact list since
+     * the index was written. The appended lines are added to a copy of the index, or the index is written
+     * again from its own slots if it is too full, so the old lines of the contact list are not read. The
+     * copy then replaces the index, so readers never see a half updated index. The caller should hold
+     * the <tt>ContactListLock</tt>.
+     *
+     * @param contactList contact list
+     * @return false if the index should be rebuilt, because the contact list was not only appended to
+     * @throws IOException If the contact list or the index cannot be read or written
+     */
+    private static boolean appendTail(File contactList) throws IOException {
+        File indexFile = indexFile(contactList);
+        if (!indexFile.exists()) return false;
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+             RandomAccessFile file = new RandomAccessFile(contactList, "r")) {
+            // Lines appended from now on are indexed by the next open
+            long mtime = contactList.lastModified();
+            long indexedSize = file.length();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            long size = header.getLong(16);
+            long sortedSize = header.getLong(32);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || indexedSize <= size) return false;
+
+            // Checking that the indexed bytes are unchanged and end with a complete line
+            byte[] last = new byte[(int) Math.min(size, CHECKPOINT_SIZE)];
+            file.seek(size - last.length);
+            file.readFully(last);
+            if (checksum(last, last.length) != header.getLong(40)
+                    || (last.length > 0 && last[last.length - 1] != '\n')) return false;
+
+            // Indexing the appended lines, the sorted part grows while they are in order
+            Builder builder = new Builder();
+            byte[] previous = null;     // last line of the indexed bytes, if the sorted part ends with it
+            if (sortedSize == size) {
+                int start = last.length - 1;
+                while (start > 0 && last[start - 1] != '\n') start--;
+                if (start > 0 || size <= CHECKPOINT_SIZE) {
+                    previous = Arrays.copyOfRange(last, start, Math.max(start, last.length - 1));
+                }
+            }
+            file.seek(size);
+            InputStream in = new BufferedInputStream(new FileInputStream(file.getFD()), 1 << 16);
+            long tailSortedSize = indexLines(in, size, indexedSize, previous, builder);
+            if (previous != null) sortedSize = tailSortedSize;
+
+            int capacity = header.getInt(24);
+            int count = header.getInt(28) + builder.count;
+            if ((long) count * 2 > capacity) {
+                // Growing the table, the old entries are copied from the slots with their flags
+                MappedByteBuffer slots = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+                        (long) capacity * SLOT_SIZE);
+                Builder grown = new Builder();
+                for (int slot = 0; slot < capacity; slot++) {
+                    long number = slots.getLong(slot * SLOT_SIZE);
+                    if (number != EMPTY) grown.add(number, slots.getLong(slot * SLOT_SIZE + 8));
+                }
+                for (int i = 0; i < builder.count; i++) grown.add(builder.numbers[i], builder.offsets[i]);
+                grown.save(contactList, mtime, indexedSize, sortedSize);
+                return true;
+            }
+
+            // Adding the appended lines to the slots of a copy of the index
+            File tempFile = File.createTempFile("contact_list", ".tmp", indexFile.getParentFile());
+            try {
+                try (FileChannel temp = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+                    for (long position = 0; position < channel.size(); ) {
+                        position += channel.transferTo(position, channel.size() - position, temp);
+                    }
+                    MappedByteBuffer slots = temp.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE,
+                            (long) capacity * SLOT_SIZE);
+                    for (int i = 0; i < builder.count; i++) {
+                        int mask = capacity - 1;
+                        int slot = hash(builder.numbers[i]) & mask;
+                        while (slots.getLong(slot * SLOT_SIZE) != EMPTY
+                                && slots.getLong(slot * SLOT_SIZE) != builder.numbers[i]) {
+                            slot = (slot + 1) & mask;
+                        }
+                        if (slots.getLong(slot * SLOT_SIZE) == builder.numbers[i]) {
+                            slots.putLong(slot * SLOT_SIZE + 8, slots.getLong(slot * SLOT_SIZE + 8) | DUPLICATE);
+                        } else {
+                            slots.putLong(slot * SLOT_SIZE, builder.numbers[i]);
+                            slots.putLong(slot * SLOT_SIZE + 8, builder.offsets[i]);
+                        }
+                    }
+                    slots.force();
+                    header.clear();
+                    header.putInt(MAGIC).putInt(VERSION).putLong(mtime).putLong(indexedSize)
+                            .putInt(capacity).putInt(count).putLong(sortedSize)
+                            .putLong(checkpoint(contactList, indexedSize));
+                    header.flip();
+                    temp.write(header, 0);
+                }
+                ContactListLock.replace(tempFile, indexFile);
+            } catch (IOException e) {
+                tempFile.delete();
+                throw e;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * <tt>indexLines(in, offset, limit, previous, builder)</tt> adds the lines of a stream to an index
+     * and finds where they stop being in order.
+     *
+     * @param in the lines of the contact list
+     * @param offset byte offset of the first line
+     * @param limit byte offset where the scan stops, the bytes after it are not read
+     * @param previous the line before the first line, or null if the order is not checked
+     * @param builder builder of the index
+     * @return byte offset of the first line which is less than the line before it, or the end of the stream
+     * @throws IOException If the stream cannot be read
+     */
+    private static long indexLines(InputStream in, long offset, long limit, byte[] previous, Builder builder)
+            throws IOException {
+        byte[] line = new byte[256];
+        int len = 0;
+        int previousLength = previous == null ? 0 : previous.length;
+        long start = offset;
+        long position = offset;     // offset of the next byte
+        long sortedSize = -1;       // offset of the first line out of order
+        long linesScanned = 0;
+        int b;
+        while ((b = position < limit ? in.read() : -1) != -1 || len > 0) {
+            if (b != -1) position++;
+            if (b != '\n' && b != -1) {
+                if (len == line.length) line = Arrays.copyOf(line, Math.max(len * 2, 256));
+                line[len++] = (byte) b;
+                continue;
+            }
+            int end = len > 0 && line[len - 1] == '\r' ? len - 1 : len;
+            builder.add(parseNumber(line, end), offset);
+            linesScanned++;
+
+            // Checking the order of the line with the previous one
+            if (previous != null && sortedSize < 0) {
+                if (Arrays.compareUnsigned(line, 0, end, previous, 0, previousLength) < 0) {
+                    sortedSize = offset;
+                } else {
+                    byte[] swap = previous;
+                    previous = line;
+                    previousLength = end;
+                    line = swap;
+                }
+            }
+            offset = position;
+            len = 0;
+            if (b == -1) break;
+        }
+        OperationStats.addLinesScanned(linesScanned);
+        OperationStats.addBytesRead(position - start);
+        return sortedSize < 0 ? position : sortedSize;
+    }
+
+    /**
+     * <tt>checkpoint(contactList, size)</tt> returns the CRC32 of the last <tt>CHECKPOINT_SIZE</tt>
+     * bytes of the first size bytes of the contact list.
+     *
+     * @param contactList contact list
+     * @param size number of indexed bytes
+     * @return the checksum
+     * @throws IOException If the contact list cannot be read
+     */
+    private static long checkpoint(File contactList, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(contactList, "r")) {
+            byte[] last = new byte[(int) Math.min(size, CHECKPOINT_SIZE)];
+            file.seek(size - last.length);
+            file.readFully(last);
+            return checksum(last, last.length);
+        }
+    }
+
+    /**
+     * <tt>checksum(bytes, length)</tt> returns the CRC32 of bytes.
+     *
+     * @param bytes bytes
+     * @param length number of bytes
+     * @return the checksum
+     */
+    private static long checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+    /**
+     * <tt>parseNumber(line, len)</tt> parses the digits after the ':' of a line.
+     *
+     * @param line line bytes
+     * @param len length of the line
+     * @return the phone number, or -1 if the line is malformed
+     */
+    private static long parseNumber(byte[] line, int len) {
+        int i = 0;
+        while (i < len && line[i] != ':') i++;
+        long number = 0;
+        int digits = 0;
+        for (i++; i < len; i++) {
+            if (line[i] >= '0' && line[i] <= '9') {
+                if (++digits > 18) return -1;
+                number = number * 10 + (line[i] - '0');
+            }
+        }
+        return digits == 0 ? -1 : number;
+    }
+
+    /**
+     * <tt>indexFile(contactList)</tt> returns the index file of a contact list.
+     *
+     * @param contactList contact list
+     * @return the index file
+     */
+    static File indexFile(File contactList) {
+        return new File(contactList.getAbsolutePath() + EXTENSION);
+    }
+
+    /**
+     * <tt>isFresh(contactList, indexFile)</tt> checks whether the index matches the
+     * modification time and the size of the contact list.
+     *
+     * @param contactList contact list
+     * @param indexFile index file
+     * @return true if the index is up to date
+     */
+    private static boolean isFresh(File contactList, File indexFile) {
+        if (!indexFile.exists()) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION
+                    && in.readLong() == contactList.lastModified()
+                    && in.readLong() == contactList.length();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * <tt>hash(number)</tt> spreads the bits of a phone number
+     *
+     * @param number phone number
+     * @return hash code
+     */
+    private static int hash(long number) {
+        long h = number * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * <tt>Builder</tt> collects the numbers and the offsets of a contact list
+     * while it is scanned or written, and saves them as the index.
+     */
+    static class Builder {
+        private long[] numbers = new long[1024];
+        private long[] offsets = new long[1024];
+        private int count = 0;
+
+        /**
+         * <tt>add(number, offset)</tt> adds a line to the index.
+         * Malformed lines (number -1) are skipped.
+         *
+         * @param number phone number
+         * @param offset byte offset of the line
+         */
+        void add(long number, long offset) {
+            if (number < 0) return;
+            if (count == numbers.length) {
+                numbers = Arrays.copyOf(numbers, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            numbers[count] = number;
+            offsets[count++] = offset;
+        }
+
+        /**
+         * <tt>save(contactList)</tt> writes the index of the given contact list, which is in order.
+         * This should be called after the contact list is completely written.
+         *
+         * @param contactList contact list
+         * @throws IOException If the index cannot be written
+         */
+        void save(File contactList) throws IOException {
+            long mtime = contactList.lastModified();
+            long size = contactList.length();
+            save(contactList, mtime, size, size);
+        }
+
+        /**
+         * <tt>save(contactList, mtime, size, sortedSize)</tt> writes the index of the first size bytes
+         * of the given contact list. If the contact list is modified after mtime, the next open
+         * indexes the bytes after size as a tail.
+         *
+         * @param contactList contact list
+         * @param mtime modification time of the contact list, taken before it was scanned
+         * @param size number of scanned bytes
+         * @param sortedSize end of the sorted part of the contact list
+         * @throws IOException If the index cannot be written
+         */
+        void save(File contactList, long mtime, long size, long sortedSize) throws IOException {
+            int capacity = 16;
+            while (capacity < count * 2) capacity <<= 1;
+            if ((long) capacity * SLOT_SIZE > Integer.MAX_VALUE)
+                throw new IOException("Contact List is too large to be indexed");
+
+            // Filling the hash table
+            long[] table = new long[capacity * 2];
+            Arrays.fill(table, EMPTY);
+            int mask = capacity - 1;
+            for (int i = 0; i < count; i++) {
+                int slot = hash(numbers[i]) & mask;
+                while (table[slot * 2] != EMPTY && table[slot * 2] != numbers[i]) slot = (slot + 1) & mask;
+                if (table[slot * 2] == numbers[i]) {
+                    table[slot * 2 + 1] |= DUPLICATE;   // keeping the offset of the first line
+                } else {
+                    table[slot * 2] = numbers[i];
+                    table[slot * 2 + 1] = offsets[i];
+                }
+            }
+
+            // Writing the index to a temporary file and replacing the old index
+            File indexFile = indexFile(contactList);
+            File tempFile = File.createTempFile("contact_list", ".tmp", indexFile.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tempFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(mtime);
+                out.writeLong(size);
+                out.writeInt(capacity);
+                out.writeInt(count);
+                out.writeLong(sortedSize);
+                out.writeLong(checkpoint(contactList, size));
+                for (long value : table) out.writeLong(value);
+            } catch (IOException e) {
+                tempFile.delete();
+                throw e;
+            }
+            ContactListLock.replace(tempFile, indexFile);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * <tt>OperationEvent</tt> is a JDK Flight Recorder event of an operation of a contact list,
+ * such as a name lookup, a number lookup, an insert or a json import.
+ *
+ * <p> The events are recorded with <tt>-XX:StartFlightRecording</tt> and shown under the
+ * "Contact List" category of JDK Mission Control, or printed with
+ * <tt>jfr print --events contactlist.Operation recording.jfr</tt>. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+@Name("contactlist.Operation")
+@Label("Contact List Operation")
+@Category("Contact List")
+@Description("An operation of a contact list and the work it did")
+class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Query")
+    String query;
+
+    @Label("Contact List")
+    String contactList;
+
+    @Label("Lines Scanned")
+    long linesScanned;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    @Label("Matches")
+    long matches;
+
+    @Label("Sort Time")
+    @Timespan
+    long sortTime;
+
+    @Label("Write Time")
+    @Timespan
+    long writeTime;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    // Number of nested operations which are recorded by this event, not recorded
+    transient int depth;
+    // Start of the operation for the latency histograms, not recorded
+    transient long startNanos;
+}
@@ -0,0 +1,283 @@
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <tt>OperationStats</tt> measures the operations of the contact lists.
+ *
+ * <p> An operation is started with <tt>begin</tt> and finished with <tt>end</tt> on the same thread.
+ * The code in between adds the lines it scanned, the bytes it read and wrote and the time it spent
+ * sorting and writing with the static <tt>add</tt> methods. Operations which begin inside another
+ * operation of the same thread (such as the duplicate check of an insert) are counted as part of the
+ * outer operation. </p>
+ *
+ * <p> A part of an operation which runs on another thread, such as the search of a shard, is counted
+ * in an event of its own from <tt>fork</tt>, which is entered on that thread, and added to the
+ * operation with <tt>join</tt> once it is done. </p>
+ *
+ * <p> Every operation is committed as an <tt>OperationEvent</tt> to the JDK Flight Recorder and its
+ * latency is recorded in an in-process histogram of its kind, which is printed by <tt>dump</tt>. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class OperationStats {
+    // Operation of the current thread
+    private static final ThreadLocal<OperationEvent> CURRENT = new ThreadLocal<>();
+    // Histograms of the operations by their names
+    private static final TreeMap<String, Histogram> HISTOGRAMS = new TreeMap<>();
+
+    /**
+     * <tt>begin(operation, contactList, query)</tt> starts an operation on the current thread.
+     *
+     * @param operation name of the operation, such as "name" or "insert"
+     * @param contactList path of the contact list
+     * @param query the name or the number, or null
+     */
+    static void begin(String operation, String contactList, String query) {
+        OperationEvent event = CURRENT.get();
+        if (event != null) {
+            event.depth++;
+            return;
+        }
+        event = new OperationEvent();
+        event.operation = operation;
+        event.contactList = contactList;
+        event.query = query;
+        event.startNanos = System.nanoTime();
+        event.begin();
+        CURRENT.set(event);
+    }
+
+    /**
+     * <tt>end()</tt> finishes the operation of the current thread. The outermost operation
+     * commits its event and records its latency.
+     */
+    static void end() {
+        OperationEvent event = CURRENT.get();
+        if (event == null) return;
+        if (event.depth > 0) {
+            event.depth--;
+            return;
+        }
+        CURRENT.remove();
+        event.end();
+        long nanos = System.nanoTime() - event.startNanos;
+        if (event.shouldCommit()) event.commit();
+
+        Histogram histogram;
+        synchronized (HISTOGRAMS) {
+            histogram = HISTOGRAMS.computeIfAbsent(event.operation, operation -> new Histogram());
+        }
+        histogram.record(nanos, event);
+    }
+
+    /**
+     * <tt>fork()</tt> creates an event for a part of the current operation which runs on another thread.
+     * The event is never committed, the operations which begin while it is entered are counted in it.
+     *
+     * @return the event of the part
+     */
+    static OperationEvent fork() {
+        return new OperationEvent();
+    }
+
+    /**
+     * <tt>enter(part)</tt> makes the event of a part the operation of the current thread.
+     *
+     * @param part event from <tt>fork</tt>
+     * @return the previous operation of the current thread, which is restored by <tt>exit</tt>
+     */
+    static OperationEvent enter(OperationEvent part) {
+        OperationEvent previous = CURRENT.get();
+        CURRENT.set(part);
+        return previous;
+    }
+
+    /**
+     * <tt>exit(previous)</tt> restores the operation of the current thread after a part.
+     *
+     * @param previous value returned by <tt>enter</tt>
+     */
+    static void exit(OperationEvent previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * <tt>join(part)</tt> adds the counters of a finished part to the current operation.
+     *
+     * @param part event from <tt>fork</tt>
+     */
+    static void join(OperationEvent part) {
+        OperationEvent event = CURRENT.get();
+        if (event == null) return;
+        event.linesScanned += part.linesScanned;
+        event.bytesRead += part.bytesRead;
+        event.bytesWritten += part.bytesWritten;
+        event.matches += part.matches;
+        event.sortTime += part.sortTime;
+        event.writeTime += part.writeTime;
+    }
+
+    /**
+     * @param lines number of lines scanned by the current operation
+     */
+    static void addLinesScanned(long lines) {
+        OperationEvent event = CURRENT.get();
+        if (event != null) event.linesScanned += lines;
+    }
+
+    /**
+     * @param bytes number of bytes read by the current operation
+     */
+    static void addBytesRead(long bytes) {
+        OperationEvent event = CURRENT.get();
+        if (event != null) event.bytesRead += bytes;
+    }
+
+    /**
+     * @param bytes number of bytes written by the current operation
+     */
+    static void addBytesWritten(long bytes) {
+        OperationEvent event = CURRENT.get();
+        if (event != null) event.bytesWritten += bytes;
+    }
+
+    /**
+     * @param matches number of contacts found or inserted by the current operation
+     */
+    static void addMatches(long matches) {
+        OperationEvent event = CURRENT.get();
+        if (event != null) event.matches += matches;
+    }
+
+    /**
+     * @param nanos time spent sorting by the current operation
+     */
+    static void addSortTime(long nanos) {
+        OperationEvent event = CURRENT.get();
+        if (event != null) event.sortTime += nanos;
+    }
+
+    /**
+     * @param nanos time spent writing by the current operation
+     */
+    static void addWriteTime(long nanos) {
+        OperationEvent event = CURRENT.get();
+        if (event != null) event.writeTime += nanos;
+    }
+
+    /**
+     * <tt>setCacheHit()</tt> marks that the current operation was answered from the lookup cache.
+     */
+    static void setCacheHit() {
+        OperationEvent event = CURRENT.get();
+        if (event != null) event.cacheHit = true;
+    }
+
+    /**
+     * <tt>dump()</tt> returns the latency histograms and the counters of the operations in the following format:
+     *
+     * <code>
+     * Operation   Count  Mean(us)   p50(us)   p90(us)   p99(us)   Max(us)  Lines   Read(B)  Written(B)
+     * name            3     120.5        96       160       160       160     12       640           0
+     * </code>
+     *
+     * <p> The percentiles are upper bounds of the histogram buckets, within 12.5% of the exact values. </p>
+     *
+     * @return the statistics, one line per operation
+     */
+    static String dump() {
+        StringBuilder dump = new StringBuilder(String.format("%-10s%8s%10s%10s%10s%10s%10s%12s%14s%14s%n",
+                "Operation", "Count", "Mean(us)", "p50(us)", "p90(us)", "p99(us)", "Max(us)", "Lines",
+                "Read(B)", "Written(B)"));
+        synchronized (HISTOGRAMS) {
+            for (Map.Entry<String, Histogram> entry : HISTOGRAMS.entrySet()) {
+                dump.append(String.format("%-10s", entry.getKey())).append(entry.getValue()).append(System.lineSeparator());
+            }
+        }
+        return dump.toString();
+    }
+
+    /**
+     * <tt>Histogram</tt> is a log-linear latency histogram with 8 buckets for every power of 2 nanoseconds,
+     * and the counters of an operation.
+     */
+    private static class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private final long[] buckets = new long[64 * SUB_BUCKETS];
+        private long count = 0;
+        private long sum = 0;
+        private long max = 0;
+        private long linesScanned = 0;
+        private long bytesRead = 0;
+        private long bytesWritten = 0;
+
+        /**
+         * <tt>record(nanos, event)</tt> records the latency and the counters of an operation.
+         *
+         * @param nanos latency in nanoseconds
+         * @param event event of the operation
+         */
+        synchronized void record(long nanos, OperationEvent event) {
+            buckets[bucket(nanos)]++;
+            count++;
+            sum += nanos;
+            max = Math.max(max, nanos);
+            linesScanned += event.linesScanned;
+            bytesRead += event.bytesRead;
+            bytesWritten += event.bytesWritten;
+        }
+
+        /**
+         * <tt>percentile(p)</tt> returns the latency which is not exceeded by the given fraction of the operations.
+         *
+         * @param p fraction, 0 to 1
+         * @return upper bound of the bucket of the percentile in nanoseconds
+         */
+        private long percentile(double p) {
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        /**
+         * <tt>bucket(nanos)</tt> returns the bucket of a latency.
+         *
+         * @param nanos latency in nanoseconds
+         * @return index of the bucket
+         */
+        private static int bucket(long nanos) {
+            if (nanos < SUB_BUCKETS) return (int) Math.max(nanos, 0);
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);   // 3 or more
+            int sub = (int) (nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+            return (exponent - 2) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * <tt>upperBound(bucket)</tt> returns the largest latency of a bucket.
+         *
+         * @param bucket index of the bucket
+         * @return the latency in nanoseconds
+         */
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + 2;
+            int sub = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1L) << (exponent - 3)) - 1;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%8d%10.1f%10d%10d%10d%10d%12d%14d%14d", count, sum / 1000.0 / count,
+                    percentile(0.5) / 1000, percentile(0.9) / 1000, percentile(0.99) / 1000, max / 1000,
+                    linesScanned, bytesRead, bytesWritten);
+        }
+    }
+}
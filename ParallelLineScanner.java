@@ -0,0 +1,175 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <tt>ParallelLineScanner</tt> finds the lines of a file which contain a given pattern
+ * using all the cores of the machine.
+ *
+ * <p> The file is split into byte ranges which are aligned to the line boundaries. Every range is
+ * memory mapped and scanned on a <tt>ForkJoinPool</tt> without decoding the lines which do not
+ * match. The matches are gathered in the original order of the file, so the result is the same
+ * as a sequential scan. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class ParallelLineScanner {
+    // Smallest range which is worth a separate task
+    private static final long MIN_RANGE_SIZE = 1 << 20;
+    // Largest range, so that a range can always be mapped with a single buffer
+    private static final long MAX_RANGE_SIZE = 1 << 28;
+    // Number of ranges per thread, so that the threads finishing early can take more work
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * <tt>scan(file, pattern, threads, linesScanned)</tt> returns the lines of the file which contain
+     * the pattern and counts the scanned lines.
+     *
+     * @param file file which is to be scanned
+     * @param pattern the pattern, it should not contain a line separator
+     * @param threads number of threads
+     * @param linesScanned the number of lines of the file is added to it
+     * @return the matching lines in the order of the file, without the line separators
+     * @throws IOException If the file cannot be read
+     */
+    static List<String> scan(File file, String pattern, int threads, LongAdder linesScanned) throws IOException {
+        byte[] bytes = pattern.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long rangeSize = Math.min(Math.max(size / ((long) threads * RANGES_PER_THREAD), MIN_RANGE_SIZE),
+                    MAX_RANGE_SIZE);
+
+            // Splitting the file into ranges which end at line boundaries
+            ArrayList<long[]> ranges = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = nextLineStart(channel, Math.min(start + rangeSize, size));
+                ranges.add(new long[] {start, end});
+                start = end;
+            }
+            if (ranges.size() <= 1) {
+                return ranges.isEmpty() ? new ArrayList<>() : scanRange(channel, 0, size, bytes, linesScanned);
+            }
+            ArrayList<Callable<List<String>>> tasks = new ArrayList<>(ranges.size());
+            for (long[] range : ranges) {
+                tasks.add(() -> scanRange(channel, range[0], range[1], bytes, linesScanned));
+            }
+
+            // Scanning the ranges concurrently and gathering the matches in order
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ArrayList<String> lines = new ArrayList<>();
+                for (Future<List<String>> result : pool.invokeAll(tasks)) {
+                    lines.addAll(result.get());
+                }
+                return lines;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Scan is interrupted", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * <tt>nextLineStart(channel, position)</tt> returns the start of the first line at or after the position.
+     *
+     * @param channel opened file
+     * @param position byte position
+     * @return byte offset of the line, or the size of the file
+     * @throws IOException If the file cannot be read
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        if (position == 0 || position >= channel.size()) return Math.min(position, channel.size());
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        position--;     // the range may already end at a line boundary
+        while (true) {
+            buf.clear();
+            int n = channel.read(buf, position);
+            if (n <= 0) return channel.size();
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return position + i + 1;
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * <tt>scanRange(channel, start, end, pattern, linesScanned)</tt> maps a range of the file and returns
+     * the lines which contain the pattern.
+     *
+     * @param channel opened file
+     * @param start byte offset of the first line of the range
+     * @param end byte offset after the last line of the range
+     * @param pattern pattern bytes
+     * @param linesScanned the number of lines of the range is added to it
+     * @return the matching lines
+     * @throws IOException If the range cannot be mapped
+     */
+    private static List<String> scanRange(FileChannel channel, long start, long end, byte[] pattern,
+                                          LongAdder linesScanned) throws IOException {
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        ArrayList<String> found = new ArrayList<>();
+        int limit = buf.limit();
+        int lineStart = 0;
+        int i = 0;
+        long lines = 0;
+        while (i <= limit - pattern.length) {
+            byte b = buf.get(i);
+            if (b == '\n') {
+                lines++;
+                lineStart = ++i;
+            } else if (matches(buf, i, pattern)) {
+                // Decoding the matching line and skipping to the next line
+                int lineEnd = i;
+                while (lineEnd < limit && buf.get(lineEnd) != '\n') lineEnd++;
+                int length = lineEnd - lineStart;
+                if (length > 0 && buf.get(lineEnd - 1) == '\r') length--;
+                byte[] line = new byte[length];
+                buf.get(lineStart, line);
+                found.add(new String(line, StandardCharsets.UTF_8));
+                lines++;
+                lineStart = i = lineEnd + 1;
+            } else {
+                i++;
+            }
+        }
+
+        // Counting the lines of the tail which is shorter than the pattern
+        for (; i < limit; i++) {
+            if (buf.get(i) == '\n') lines++;
+        }
+        if (limit > 0 && buf.get(limit - 1) != '\n') lines++;
+        linesScanned.add(lines);
+        return found;
+    }
+
+    /**
+     * <tt>matches(buf, position, pattern)</tt> checks whether the pattern is at the position.
+     *
+     * @param buf mapped range
+     * @param position byte position
+     * @param pattern pattern bytes
+     * @return true if the pattern is at the position
+     */
+    private static boolean matches(MappedByteBuffer buf, int position, byte[] pattern) {
+        for (int j = 0; j < pattern.length; j++) {
+            if (buf.get(position + j) != pattern[j]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,520 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <tt>ShardedContactStore</tt> is a <tt>ContactStore</tt> which stores the contacts in a directory of
+ * ".txt" contact lists (shards), partitioned by the hash of the phone number.
+ *
+ * <p> The directory is described by a small manifest, <tt>contact_list.manifest</tt>: </p>
+ *
+ * <code>
+ * format=1
+ * partition=number-hash
+ * shards=16
+ * </code>
+ *
+ * <p> The shards are named shard-000.txt, shard-001.txt and so on, and every shard is a
+ * <tt>FileContactStore</tt> with its own number index, trigram index and delta segment.
+ * A number is always stored in the same shard, so number lookups read exactly one shard and
+ * inserts check the duplicates and rewrite only that shard. Name searches are fanned out to the
+ * shards in parallel and the sorted results are merged. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public class ShardedContactStore implements ContactStore {
+    // Manifest file name in the directory
+    static final String MANIFEST = "contact_list.manifest";
+    private static final int FORMAT = 1;
+    private static final String PARTITION = "number-hash";
+
+    private final FileContactStore[] shards;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs a <tt>ShardedContactStore</tt> of an existing directory.
+     *
+     * @param directory the directory of the shards
+     * @throws IOException If the manifest cannot be read or it is not supported
+     */
+    public ShardedContactStore(File directory) throws IOException {
+        Properties manifest = new Properties();
+        try (Reader in = new FileReader(new File(directory, MANIFEST))) {
+            manifest.load(in);
+        }
+        if (!String.valueOf(FORMAT).equals(manifest.getProperty("format"))
+                || !PARTITION.equals(manifest.getProperty("partition")))
+            throw new IOException("Unsupported manifest of sharded Contact List : " + directory);
+        int count;
+        try {
+            count = Integer.parseInt(manifest.getProperty("shards", ""));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number of shards in the manifest of " + directory);
+        }
+        if (count < 1) throw new IOException("Invalid number of shards in the manifest of " + directory);
+        shards = new FileContactStore[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new FileContactStore(shardFile(directory, i));
+        }
+        setThreads(threads);
+    }
+
+    /**
+     * <tt>isSharded(file)</tt> checks whether a file is a directory of a sharded contact list.
+     *
+     * @param file file
+     * @return true if the file is a directory with a manifest
+     */
+    public static boolean isSharded(File file) {
+        return file.isDirectory() && new File(file, MANIFEST).isFile();
+    }
+
+    /**
+     * <tt>setThreads(threads)</tt> sets the number of shards which are searched at once. The threads
+     * are shared by the shards, so each shard scans with threads / shards threads.
+     *
+     * @param threads number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+        for (FileContactStore shard : shards) shard.setThreads(Math.max(1, threads / shards.length));
+    }
+
+    /**
+     * <tt>setAppendToLog(appendToLog)</tt> sets whether the inserted contacts are appended to the
+     * delta segments of the shards instead of rewriting them.
+     *
+     * @param appendToLog true to append to the delta segments
+     */
+    public void setAppendToLog(boolean appendToLog) {
+        for (FileContactStore shard : shards) shard.setAppendToLog(appendToLog);
+    }
+
+    /**
+     * <tt>setCompactThreshold(compactThreshold)</tt> sets the size of the delta segment of a shard
+     * which triggers a compaction of the shard.
+     *
+     * @param compactThreshold size of the delta segment in bytes
+     */
+    public void setCompactThreshold(long compactThreshold) {
+        for (FileContactStore shard : shards) shard.setCompactThreshold(compactThreshold);
+    }
+
+    /**
+     * <tt>setLookupCache(lookupCache)</tt> sets the cache of the lookup results of the shards.
+     *
+     * @param lookupCache cache of the lookup results
+     */
+    public void setLookupCache(LookupCache lookupCache) {
+        for (FileContactStore shard : shards) shard.setLookupCache(lookupCache);
+    }
+
+    /**
+     * <tt>findByName(name)</tt> returns the contacts whose names start with the given name.
+     * The shards are searched in parallel.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If a shard cannot be read
+     */
+    @Override
+    public List<Contact> findByName(String name) throws IOException {
+        return merge(fanOut(shard -> shard.findByName(name)));
+    }
+
+    /**
+     * <tt>findContaining(name)</tt> returns the contacts which contain the given name anywhere.
+     * The shards are scanned in parallel.
+     *
+     * @param name name
+     * @return the matching contacts in order
+     * @throws IOException If a shard cannot be read
+     */
+    @Override
+    public List<Contact> findContaining(String name) throws IOException {
+        return merge(fanOut(shard -> shard.findContaining(name)));
+    }
+
+    /**
+     * <tt>findSimilar(name)</tt> returns the contacts whose names are similar to a misspelled name,
+     * the closest first. The candidates of the shards are ranked together.
+     *
+     * @param name the misspelled name
+     * @return the similar contacts
+     * @throws IOException If a shard cannot be read
+     */
+    public List<Contact> findSimilar(String name) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        for (List<Contact> contacts : fanOut(shard -> shard.findSimilar(name))) {
+            for (Contact contact : contacts) lines.add(contact.toString());
+        }
+        return FuzzyNameMatcher.rank(name, lines);
+    }
+
+    /**
+     * <tt>findByNumber(number)</tt> returns the contacts of a phone number from its shard.
+     *
+     * @param number phone number
+     * @return the matching contacts in order
+     * @throws IOException If the shard cannot be read
+     */
+    @Override
+    public List<Contact> findByNumber(long number) throws IOException {
+        return shards[shardOf(number, shards.length)].findByNumber(number);
+    }
+
+    /**
+     * <tt>insert(name, number)</tt> inserts a contact to the shard of its number.
+     * Only that shard is rewritten.
+     *
+     * @param name name
+     * @param number phone number
+     * @throws InputDuplicateNumberException If the phone number is already stored
+     * @throws IOException If the shard cannot be written
+     */
+    @Override
+    public void insert(String name, long number) throws IOException {
+        shards[shardOf(number, shards.length)].insert(name, number);
+    }
+
+    /**
+     * <tt>insertAll(contacts)</tt> inserts a batch of contacts. The batch is split by the shards, and
+     * the shards which receive contacts are checked and rewritten in parallel.
+     *
+     * @param contacts the contacts which are to be inserted
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the input order
+     * @throws IOException If a shard cannot be written
+     */
+    @Override
+    public List<InputDuplicateNumberException> insertAll(Collection<Contact> contacts) throws IOException {
+        // Splitting the batch, with the input positions of the contacts
+        ArrayList<ArrayList<Contact>> batches = new ArrayList<>(shards.length);
+        ArrayList<ArrayList<Integer>> positions = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            batches.add(new ArrayList<>());
+            positions.add(new ArrayList<>());
+        }
+        int position = 0;
+        for (Contact contact : contacts) {
+            int shard = shardOf(contact.getNumber(), shards.length);
+            batches.get(shard).add(contact);
+            positions.get(shard).add(position++);
+        }
+
+        // Inserting the batches, the rejects of every shard are put back at the input positions
+        InputDuplicateNumberException[] rejected = new InputDuplicateNumberException[position];
+        fanOut(shard -> {
+            int s = Arrays.asList(shards).indexOf(shard);
+            if (batches.get(s).isEmpty()) return null;
+            InputDuplicateNumberException[] shardRejected = shard.insertBatch(batches.get(s));
+            for (int i = 0; i < shardRejected.length; i++) {
+                if (shardRejected[i] != null) rejected[positions.get(s).get(i)] = shardRejected[i];
+            }
+            return null;
+        });
+
+        ArrayList<InputDuplicateNumberException> rejects = new ArrayList<>();
+        for (InputDuplicateNumberException reject : rejected) {
+            if (reject != null) rejects.add(reject);
+        }
+        return rejects;
+    }
+
+    /**
+     * <tt>insertSorted(contacts)</tt> inserts sorted contacts. The contacts are split by the shards into
+     * temporary runs, each of which stays sorted, and the shards which receive contacts are merged
+     * with their runs in parallel.
+     *
+     * @param contacts the contacts which are to be inserted, in order
+     * @return an <tt>InputDuplicateNumberException</tt> for every rejected contact, in the order of the shards
+     * @throws IOException If the contacts are not in order or a shard cannot be written
+     */
+    @Override
+    public List<InputDuplicateNumberException> insertSorted(Iterator<Contact> contacts) throws IOException {
+        File[] runs = new File[shards.length];
+        PrintWriter[] outs = new PrintWriter[shards.length];
+        try {
+            // Writing every contact to the run of its shard
+            for (int i = 0; i < shards.length; i++) {
+                runs[i] = File.createTempFile("contact_list", ".run");
+                outs[i] = new PrintWriter(new BufferedWriter(new FileWriter(runs[i]), 1 << 16));
+            }
+            while (contacts.hasNext()) {
+                Contact contact = contacts.next();
+                outs[shardOf(contact.getNumber(), shards.length)].println(contact);
+            }
+            for (PrintWriter out : outs) {
+                out.close();
+                if (out.checkError()) throw new IOException("Contacts cannot be split by the shards");
+            }
+
+            // Merging the runs with their shards
+            List<List<InputDuplicateNumberException>> shardRejects = fanOut(shard -> {
+                File run = runs[Arrays.asList(shards).indexOf(shard)];
+                if (run.length() == 0) return Collections.<InputDuplicateNumberException>emptyList();
+                try (BufferedReader in = new BufferedReader(new FileReader(run), 1 << 16)) {
+                    return shard.insertSorted(new Iterator<Contact>() {
+                        private String line = readLine();
+
+                        @Override
+                        public boolean hasNext() {
+                            return line != null;
+                        }
+
+                        @Override
+                        public Contact next() {
+                            if (line == null) throw new NoSuchElementException();
+                            Contact contact = Contact.parse(line);
+                            line = readLine();
+                            return contact;
+                        }
+
+                        private String readLine() {
+                            try {
+                                return in.readLine();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            });
+            ArrayList<InputDuplicateNumberException> rejects = new ArrayList<>();
+            for (List<InputDuplicateNumberException> shardReject : shardRejects) rejects.addAll(shardReject);
+            return rejects;
+        } finally {
+            for (PrintWriter out : outs) if (out != null) out.close();
+            for (File run : runs) if (run != null) run.delete();
+        }
+    }
+
+    /**
+     * <tt>stream()</tt> returns all the contacts in order, merging the streams of the shards.
+     *
+     * @return stream of the contacts
+     * @throws IOException If a shard cannot be read
+     */
+    @Override
+    public Stream<Contact> stream() throws IOException {
+        ArrayList<Stream<Contact>> streams = new ArrayList<>(shards.length);
+        try {
+            for (FileContactStore shard : shards) streams.add(shard.stream());
+        } catch (IOException e) {
+            for (Stream<Contact> stream : streams) stream.close();
+            throw e;
+        }
+        ArrayList<Iterator<Contact>> sources = new ArrayList<>(streams.size());
+        for (Stream<Contact> stream : streams) sources.add(stream.iterator());
+
+        // Merging the sorted shards
+        Contact[] heads = new Contact[sources.size()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(sources.size(), Comparator.comparing(s -> heads[s]));
+        Iterator<Contact> iterator = new Iterator<Contact>() {
+            private boolean started = false;
+
+            @Override
+            public boolean hasNext() {
+                if (!started) {
+                    started = true;
+                    for (int s = 0; s < sources.size(); s++) advance(s);
+                }
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public Contact next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int s = queue.poll();
+                Contact contact = heads[s];
+                advance(s);
+                return contact;
+            }
+
+            private void advance(int s) {
+                if (sources.get(s).hasNext()) {
+                    heads[s] = sources.get(s).next();
+                    queue.add(s);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+            for (Stream<Contact> stream : streams) stream.close();
+        });
+    }
+
+    /**
+     * <tt>write(directory, shardCount, contacts)</tt> writes contacts to a sharded contact list.
+     * The shards are written first and the manifest last. The caller should hold the
+     * <tt>ContactListLock</tt> of the directory.
+     *
+     * @param directory the directory, it is created if it does not exist
+     * @param shardCount number of shards
+     * @param contacts the contacts in order
+     * @return number of written contacts
+     * @throws IOException If the directory or a shard cannot be written
+     */
+    public static int write(File directory, int shardCount, Iterator<Contact> contacts) throws IOException {
+        if (shardCount < 1) throw new IOException("Invalid number of shards : " + shardCount);
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Directory cannot be created : " + directory);
+        File manifestFile = new File(directory, MANIFEST);
+        manifestFile.delete();  // the directory is not a valid contact list until all the shards are written
+
+        // Writing every contact to the temporary file of its shard, each shard stays sorted
+        File[] tempFiles = new File[shardCount];
+        PrintWriter[] outs = new PrintWriter[shardCount];
+        int count = 0;
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                tempFiles[i] = File.createTempFile("contact_list", ".tmp", directory);
+                outs[i] = new PrintWriter(new BufferedWriter(new FileWriter(tempFiles[i]), 1 << 16));
+            }
+            while (contacts.hasNext()) {
+                Contact contact = contacts.next();
+                outs[shardOf(contact.getNumber(), shardCount)].println(contact);
+                count++;
+            }
+            for (PrintWriter out : outs) {
+                out.close();
+                if (out.checkError()) throw new IOException("Shard cannot be written in " + directory);
+            }
+            for (int i = 0; i < shardCount; i++) {
+                File shardFile = shardFile(directory, i);
+                ContactListLock.replace(tempFiles[i], shardFile);
+                DeltaSegment.delete(shardFile);
+            }
+        } finally {
+            for (PrintWriter out : outs) if (out != null) out.close();
+            for (File tempFile : tempFiles) if (tempFile != null) tempFile.delete();
+        }
+
+        // Writing the manifest
+        Properties manifest = new Properties();
+        manifest.setProperty("format", String.valueOf(FORMAT));
+        manifest.setProperty("partition", PARTITION);
+        manifest.setProperty("shards", String.valueOf(shardCount));
+        File tempFile = File.createTempFile("contact_list", ".tmp", directory);
+        try (Writer out = new FileWriter(tempFile)) {
+            manifest.store(out, "Sharded Contact List");
+        }
+        ContactListLock.replace(tempFile, manifestFile);
+        return count;
+    }
+
+    /**
+     * <tt>shardOf(number, shardCount)</tt> returns the shard of a phone number. The number is mixed
+     * first, so numbers with the same last digits are spread over the shards.
+     *
+     * @param number phone number
+     * @param shardCount number of shards
+     * @return index of the shard
+     */
+    static int shardOf(long number, int shardCount) {
+        long hash = number * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) shardCount);
+    }
+
+    /**
+     * <tt>shardFile(directory, i)</tt> returns the file of a shard.
+     *
+     * @param directory the directory of the shards
+     * @param i index of the shard
+     * @return the ".txt" file of the shard
+     */
+    private static File shardFile(File directory, int i) {
+        return new File(directory, String.format("shard-%03d.txt", i));
+    }
+
+    /**
+     * A search of a shard
+     */
+    private interface ShardTask<T> {
+        T run(FileContactStore shard) throws IOException;
+    }
+
+    /**
+     * <tt>fanOut(task)</tt> runs a task on every shard, <tt>threads</tt> shards at once.
+     *
+     * <p> Every task is counted as a part of the current operation of the <tt>OperationStats</tt>, so the
+     * operations of the shards are not recorded as operations of their own. </p>
+     *
+     * @param task the task
+     * @return the results in the order of the shards
+     * @throws IOException If a task fails
+     */
+    private <T> List<T> fanOut(ShardTask<T> task) throws IOException {
+        ArrayList<T> results = new ArrayList<>(shards.length);
+        OperationEvent[] parts = new OperationEvent[shards.length];
+        for (int i = 0; i < shards.length; i++) parts[i] = OperationStats.fork();
+        if (shards.length == 1 || threads <= 1) {
+            try {
+                for (int i = 0; i < shards.length; i++) results.add(runPart(task, shards[i], parts[i]));
+                return results;
+            } finally {
+                for (OperationEvent part : parts) OperationStats.join(part);
+            }
+        }
+        ArrayList<Callable<T>> tasks = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            FileContactStore shard = shards[i];
+            OperationEvent part = parts[i];
+            tasks.add(() -> runPart(task, shard, part));
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.min(threads, shards.length));
+        try {
+            for (Future<T> result : pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Search is interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+            for (OperationEvent part : parts) OperationStats.join(part);
+        }
+    }
+
+    /**
+     * <tt>runPart(task, shard, part)</tt> runs a task on a shard, counting it in the event of its part.
+     *
+     * @param task the task
+     * @param shard the shard
+     * @param part event of the part from <tt>OperationStats.fork</tt>
+     * @return the result of the task
+     * @throws IOException If the task fails
+     */
+    private static <T> T runPart(ShardTask<T> task, FileContactStore shard, OperationEvent part)
+            throws IOException {
+        OperationEvent previous = OperationStats.enter(part);
+        try {
+            return task.run(shard);
+        } finally {
+            OperationStats.exit(previous);
+        }
+    }
+
+    /**
+     * <tt>merge(results)</tt> merges the sorted results of the shards.
+     *
+     * @param results the results of the shards
+     * @return the contacts in order
+     */
+    private static List<Contact> merge(List<List<Contact>> results) {
+        ArrayList<Contact> contacts = new ArrayList<>();
+        for (List<Contact> result : results) contacts.addAll(result);
+        // The results are sorted runs, which the merge sort of List.sort merges without sorting them again
+        contacts.sort(null);
+        return contacts;
+    }
+}
@@ -0,0 +1,283 @@
+package collections.SortStrings;
+
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This sorts strings which do not fit in the memory, in the same order as <tt>SortStrings</tt>:
+ * by length, shortest string first, and the Strings of the same length in Alphabetical order.
+ *
+ * <p> The input is read line by line, a string per line. Every <tt>runSize</tt> strings are sorted in
+ * the memory with <tt>SortStrings</tt> and spilled to a temporary run file. The runs are merged with
+ * a priority queue, at most <tt>fanIn</tt> runs at once; if there are more runs, they are merged into
+ * longer runs first. The sorted strings are written a string per line, in UTF-8. </p>
+ *
+ * <code>
+ * new ExternalSortStrings(1 << 20, 64).sort(new File("strings.txt"), new File("sorted.txt"));
+ * </code>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public class ExternalSortStrings {
+    // Default number of strings which are sorted in the memory at once
+    public static final int RUN_SIZE = 1 << 20;
+    // Default number of runs which are merged at once
+    public static final int FAN_IN = 64;
+    // Buffer size of the input, the output and each run
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Global variables
+    private final int runSize;
+    private final int fanIn;
+    private File tempDirectory = null;
+
+    /**
+     * Constructor for ExternalSortStrings with the default run size and fan-in
+     */
+    public ExternalSortStrings() {
+        this(RUN_SIZE, FAN_IN);
+    }
+
+    /**
+     * Constructor for ExternalSortStrings
+     *
+     * @param runSize number of strings which are sorted in the memory at once
+     * @param fanIn number of runs which are merged at once, at least 2
+     * @throws IllegalArgumentException If the run size or the fan-in is too small
+     */
+    public ExternalSortStrings(int runSize, int fanIn) {
+        if (runSize < 1) throw new IllegalArgumentException("Run size should be positive : " + runSize);
+        if (fanIn < 2) throw new IllegalArgumentException("Fan-in should be at least 2 : " + fanIn);
+        this.runSize = runSize;
+        this.fanIn = fanIn;
+    }
+
+    /**
+     * Sets the directory of the run files, the default temporary directory if it is null
+     *
+     * @param tempDirectory directory of the run files
+     */
+    public void setTempDirectory(File tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Sorts the strings of a file into another file
+     *
+     * @param input file with a string per line
+     * @param output file to which the sorted strings are written
+     * @return number of sorted strings
+     * @throws IOException If the files or the runs cannot be read or written
+     */
+    public long sort(File input, File output) throws IOException {
+        try (BufferedReader in = reader(input);
+             Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output),
+                     StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            return sort(in, out);
+        }
+    }
+
+    /**
+     * Sorts the strings of a stream into another stream. The output is flushed, but not closed.
+     *
+     * @param in input with a string per line
+     * @param out output to which the sorted strings are written, a string per line
+     * @return number of sorted strings
+     * @throws IOException If the streams or the runs cannot be read or written
+     */
+    public long sort(BufferedReader in, Writer out) throws IOException {
+        List<File> runs = new ArrayList<>();
+        // All the run files, including the merged ones
+        List<File> created = new ArrayList<>();
+        try {
+            // Sorting the strings a run at a time
+            ArrayList<String> run = new ArrayList<>(Math.min(runSize, RUN_SIZE));
+            long count = 0;
+            StringBuilder buffer = new StringBuilder();
+            String line;
+            while ((line = readLine(in, buffer, true)) != null) {
+                run.add(line);
+                count++;
+                if (run.size() == runSize) {
+                    runs.add(spill(sortRun(run), created));
+                    run.clear();
+                }
+            }
+            String[] last = sortRun(run);
+            run = null;
+
+            // The input fits in a single run
+            if (runs.isEmpty()) {
+                for (String s : last) {
+                    out.write(s);
+                    out.write('\n');
+                }
+                out.flush();
+                return count;
+            }
+            if (last.length > 0) runs.add(spill(last, created));
+            last = null;
+
+            // Merging the runs into longer runs until they can be merged at once
+            while (runs.size() > fanIn) {
+                List<File> merged = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += fanIn) {
+                    List<File> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    File file = createRun(created);
+                    merged.add(file);
+                    try (Writer runOut = writer(file)) {
+                        merge(group, runOut);
+                    }
+                    for (File f : group) {
+                        f.delete();
+                    }
+                }
+                runs = merged;
+            }
+            merge(runs, out);
+            out.flush();
+            return count;
+        } finally {
+            for (File f : created) {
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Sorts the strings of a run in the memory
+     *
+     * @param run strings of the run
+     * @return the sorted strings
+     */
+    private static String[] sortRun(List<String> run) {
+        return new SortStrings(run).toArray(new String[0]);
+    }
+
+    /**
+     * Writes sorted strings to a new run file
+     *
+     * @param sorted the sorted strings
+     * @param created list to which the run file is added
+     * @return the run file
+     * @throws IOException If the run cannot be written
+     */
+    private File spill(String[] sorted, List<File> created) throws IOException {
+        File file = createRun(created);
+        try (Writer out = writer(file)) {
+            for (String s : sorted) {
+                out.write(s);
+                out.write('\n');
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Merges sorted runs with a priority queue of the next string of each run
+     *
+     * @param runs the run files
+     * @param out output to which the merged strings are written, a string per line
+     * @throws IOException If the runs cannot be read or the output cannot be written
+     */
+    private static void merge(List<File> runs, Writer out) throws IOException {
+        List<BufferedReader> readers = new ArrayList<>(runs.size());
+        StringBuilder line = new StringBuilder();
+        try {
+            // Heads of the runs, ordered by the next string
+            PriorityQueue<Head> queue = new PriorityQueue<>(runs.size(), (a, b) -> SortStrings.ORDER.compare(a.next, b.next));
+            for (File run : runs) {
+                BufferedReader reader = reader(run);
+                readers.add(reader);
+                String next = readLine(reader, line, false);
+                if (next != null) queue.add(new Head(reader, next));
+            }
+
+            while (!queue.isEmpty()) {
+                Head head = queue.poll();
+                out.write(head.next);
+                out.write('\n');
+                head.next = readLine(head.reader, line, false);
+                if (head.next != null) queue.add(head);
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * @param created list to which the run file is added
+     * @return a new temporary run file, which is deleted by <tt>sort</tt> when it is no longer needed
+     * @throws IOException If the file cannot be created
+     */
+    private File createRun(List<File> created) throws IOException {
+        File file = File.createTempFile("sort_strings", ".run", tempDirectory);
+        created.add(file);
+        return file;
+    }
+
+    /**
+     * Reads a line which ends with a '\n'. Unlike <tt>BufferedReader.readLine()</tt>, a lone '\r' does not
+     * end the line, so the strings are the same as the lines of <tt>SortStrings.readStrings</tt>.
+     *
+     * @param in input
+     * @param line buffer of the line, which is reused between the calls
+     * @param dropCarriageReturn whether a '\r' before the '\n' is dropped, as in the input, but not in the runs
+     * @return the line without the '\n', or null at the end of the input
+     * @throws IOException If the input cannot be read
+     */
+    private static String readLine(BufferedReader in, StringBuilder line, boolean dropCarriageReturn) throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            line.append((char) c);
+        }
+        if (dropCarriageReturn && line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        // The last line may not be followed by a '\n'
+        if (c == -1 && line.length() == 0) return null;
+        return line.toString();
+    }
+
+    /**
+     * @param file file to read
+     * @return a buffered UTF-8 reader of the file
+     * @throws IOException If the file cannot be opened
+     */
+    private static BufferedReader reader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * @param file file to write
+     * @return a buffered UTF-8 writer of the file
+     * @throws IOException If the file cannot be created
+     */
+    private static Writer writer(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * The next string of a run which is being merged
+     */
+    private static class Head {
+        private final BufferedReader reader;
+        private String next;
+
+        private Head(BufferedReader reader, String next) {
+            this.reader = reader;
+            this.next = next;
+        }
+    }
+}
@@ -1,28 +1,83 @@
 package collections.SortStrings;
 
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This sorts an string array by length, shortest string first.
  * If a subset of input strings has the same length, it sorts
  * the Strings in Alphabetical order
  *
+ * <p> Inputs of at least <tt>parallelThreshold</tt> strings are sorted on all the cores: the strings
+ * are partitioned into buckets of the same length, and the buckets are sorted alphabetically on a
+ * <tt>ForkJoinPool</tt> and concatenated from the shortest length. </p>
+ *
+ * <p> The strings are sorted once, at the first read, and <tt>toArray</tt> copies the sorted order
+ * after that. The first <tt>add</tt> or <tt>remove</tt> of sorted strings moves them into a
+ * <tt>TreeMap</tt> by length, each length holding a <tt>TreeMap</tt> of its strings and their counts, so
+ * every later change takes O(log n). The reads then walk the maps in order: <tt>toArray</tt> and
+ * <tt>stream</tt> take O(n) for the strings they return and <tt>topK</tt> O(k + log n), and no sorted
+ * copy of all the strings is made again. </p>
+ *
+ * <p> <tt>topK</tt>, <tt>lengthRange</tt> and <tt>stream</tt> read only a part of the sorted order.
+ * If the strings have not been sorted yet, they do not sort all of them: <tt>topK</tt> keeps the k
+ * first strings in a bounded heap, <tt>lengthRange</tt> sorts only the strings in the range, and
+ * <tt>stream</tt> takes the strings one by one from a heap. </p>
+ *
  * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
  */
 public class SortStrings {
+    // Minimum number of strings which are sorted in parallel by default
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+    // Order of the sorted strings, by length and then alphabetically
+    static final Comparator<String> ORDER = Comparator.comparing(String :: length).thenComparing(String::compareTo);
+    // Number of characters which are read or written at once in the batch mode
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Maximum string length which is bucketed, longer strings are sorted with the comparator
+    private static final int MAX_BUCKETED_LENGTH = 1 << 20;
+
     // Global variables
-    private ArrayList<String> strArr;
+    private ArrayList<String> strArr;           // the strings, or null once they are kept in the buckets
+    private boolean sorted = false;             // true if strArr is in the sorted order
+    private TreeMap<Integer, TreeMap<String, Integer>> buckets = null;  // strings by length with their counts
+    private int bucketedSize = 0;               // number of strings in the buckets
+    private int parallelThreshold = PARALLEL_THRESHOLD;
 
 
      /**
      * Constructor for SortStrings
      */
      public SortStrings() {
-         strArr = null;
+         strArr = new ArrayList<>();
+     }
+
+     /**
+      * Constructor for SortStrings with the strings which are to be sorted
+      *
+      * @param strings strings which are to be sorted
+      */
+     public SortStrings(Collection<String> strings) {
+         strArr = new ArrayList<>(strings);
      }
 
      /**
@@ -39,6 +94,9 @@ public class SortStrings {
          System.out.print("No. of Strings which is to be sorted (N): ");
          int n = sc.nextInt();
          strArr = new ArrayList<>(n);
+         sorted = false;
+         buckets = null;
+         bucketedSize = 0;
 
          for (int i = 0; i < n; i++) {
              System.out.print("Enter String " + (i + 1) + " : ");
@@ -47,6 +105,250 @@ public class SortStrings {
 
      }
 
+    /**
+     * Reads all the strings of an input without prompts, e.g. strings piped to the standard input.
+     *
+     * <p> The input is read in blocks into a buffer and split by hand, so millions of strings can be
+     * read without a <tt>Scanner</tt>. The string array grows with the input. </p>
+     *
+     * @param in input
+     * @param lines true if every line is a string (a "\r" before the "\n" is dropped),
+     *              false if the strings are separated by whitespace
+     * @throws IOException If the input cannot be read
+     */
+    public void readStrings(Reader in, boolean lines) throws IOException {
+        strArr = new ArrayList<>();
+        sorted = false;
+        buckets = null;
+        bucketedSize = 0;
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder token = new StringBuilder();
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            int start = 0;  // first character of the current string in the buffer
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                if (lines ? c != '\n' : !Character.isWhitespace(c)) continue;
+
+                // Adding the string which ends before the separator
+                token.append(buffer, start, i - start);
+                if (lines && token.length() > 0 && token.charAt(token.length() - 1) == '\r') {
+                    token.setLength(token.length() - 1);
+                }
+                if (lines || token.length() > 0) strArr.add(token.toString());
+                token.setLength(0);
+                start = i + 1;
+            }
+            token.append(buffer, start, n - start);
+        }
+        // The last string may not be followed by a separator
+        if (lines && token.length() > 0 && token.charAt(token.length() - 1) == '\r') {
+            token.setLength(token.length() - 1);
+        }
+        if (token.length() > 0) strArr.add(token.toString());
+        strArr.trimToSize();
+    }
+
+    /**
+     * Sorts and writes the strings, a string per line. The output is flushed, but not closed.
+     *
+     * @param out output
+     * @throws IOException If the output cannot be written
+     */
+    public void writeSortedStrings(Writer out) throws IOException {
+        for (String s : sortedStrings()) {
+            out.write(s);
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Adds a string, keeping the strings sorted
+     *
+     * @param s string which is to be added
+     */
+    public void add(String s) {
+        buckets().computeIfAbsent(s.length(), length -> new TreeMap<>()).merge(s, 1, Integer::sum);
+        bucketedSize++;
+    }
+
+    /**
+     * Adds strings, keeping the strings sorted. If the strings have not been sorted yet, they are
+     * only added, and sorted together at the first read.
+     *
+     * @param strings strings which are to be added
+     */
+    public void addAll(Collection<String> strings) {
+        if (buckets == null && !sorted) {
+            strArr.addAll(strings);
+            return;
+        }
+        for (String s : strings) {
+            add(s);
+        }
+    }
+
+    /**
+     * Removes a string, if there is
+     *
+     * @param s string which is to be removed
+     * @return true if the string was removed
+     */
+    public boolean remove(String s) {
+        TreeMap<String, Integer> bucket = buckets().get(s.length());
+        Integer count = bucket == null ? null : bucket.get(s);
+        if (count == null) return false;
+        if (count > 1) {
+            bucket.put(s, count - 1);
+        } else {
+            bucket.remove(s);
+            if (bucket.isEmpty()) buckets.remove(s.length());
+        }
+        bucketedSize--;
+        return true;
+    }
+
+    /**
+     * @return number of strings
+     */
+    public int size() {
+        return strArr != null ? strArr.size() : bucketedSize;
+    }
+
+    /**
+     * Returns the first strings of the sorted order, the shortest strings
+     *
+     * @param k maximum number of strings
+     * @return the first k strings, or all the strings if there are not more, in the sorted order
+     * @throws IllegalArgumentException If k is negative
+     */
+    public String[] topK(int k) {
+        if (k < 0) throw new IllegalArgumentException("k should not be negative : " + k);
+        if (strArr == null || sorted) return stream().limit(k).toArray(String[]::new);
+
+        // Keeping the k first strings, the last of them on the top of the heap
+        PriorityQueue<String> heap = new PriorityQueue<>(Math.min(k, strArr.size()) + 1, ORDER.reversed());
+        for (String s : strArr) {
+            if (heap.size() < k) {
+                heap.add(s);
+            } else if (k > 0 && ORDER.compare(s, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(s);
+            }
+        }
+        String[] top = heap.toArray(new String[0]);
+        Arrays.sort(top, ORDER);
+        return top;
+    }
+
+    /**
+     * Returns the strings whose length is in a range
+     *
+     * @param min minimum length
+     * @param max maximum length
+     * @return the strings of at least min and at most max characters, in the sorted order
+     * @throws IllegalArgumentException If min is larger than max
+     */
+    public String[] lengthRange(int min, int max) {
+        if (min > max) throw new IllegalArgumentException("Minimum length " + min + " is larger than maximum length " + max);
+        if (strArr == null) {
+            return stream(buckets.subMap(min, true, max, true)).toArray(String[]::new);
+        }
+        if (sorted) {
+            return strArr.subList(firstOfLength(min), firstOfLength(max + 1L)).toArray(new String[0]);
+        }
+
+        // Sorting only the strings in the range
+        ArrayList<String> range = new ArrayList<>();
+        for (String s : strArr) {
+            if (s.length() >= min && s.length() <= max) range.add(s);
+        }
+        return new SortStrings(range).toArray(new String[0]);
+    }
+
+    /**
+     * Returns the strings in the sorted order, lazily. If the strings have not been sorted yet,
+     * the next string is taken from a heap of the strings, so reading the first k strings costs
+     * O(n + k log n). The strings should not be changed while the stream is read.
+     *
+     * @return sequential stream of the strings in the sorted order
+     */
+    public Stream<String> stream() {
+        if (strArr == null) return stream(buckets);
+        if (sorted) return Collections.unmodifiableList(strArr).stream();
+        return StreamSupport.stream(Spliterators.spliterator(new HeapIterator(strArr.toArray(new String[0])),
+                strArr.size(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Returns the strings of buckets in the sorted order, each string as many times as it was added
+     *
+     * @param buckets the buckets by length
+     * @return sequential stream of the strings
+     */
+    private static Stream<String> stream(Map<Integer, TreeMap<String, Integer>> buckets) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new BucketIterator(buckets.values()),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return iterator of the strings in the sorted order, see <tt>stream</tt>
+     */
+    public Iterator<String> iterator() {
+        return stream().iterator();
+    }
+
+    /**
+     * Finds the first string of at least a length in the sorted strings
+     *
+     * @param length the length
+     * @return index of the first string which is not shorter, or the number of strings if there are none
+     */
+    private int firstOfLength(long length) {
+        int low = 0;
+        int high = strArr.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (strArr.get(mid).length() < length) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the sorted strings, sorting them at the first read. Once the strings are kept in the
+     * buckets, the buckets are read in order.
+     *
+     * @return the strings in the sorted order
+     */
+    private Iterable<String> sortedStrings() {
+        if (strArr == null) return () -> new BucketIterator(buckets.values());
+        if (!sorted) performSortStrings();
+        sorted = true;
+        return strArr;
+    }
+
+    /**
+     * Returns the strings by length, moving the sorted strings into the buckets at the first change
+     *
+     * @return the buckets
+     */
+    private TreeMap<Integer, TreeMap<String, Integer>> buckets() {
+        if (buckets == null) {
+            buckets = new TreeMap<>();
+            for (String s : sortedStrings()) {
+                buckets.computeIfAbsent(s.length(), length -> new TreeMap<>()).merge(s, 1, Integer::sum);
+            }
+            bucketedSize = strArr.size();
+            strArr = null;
+        }
+        return buckets;
+    }
+
     /**
      * This sorts the string array by length, shortest string first.
      * If a subset of input strings has the same length, it sorts
@@ -54,7 +356,104 @@ public class SortStrings {
      *
      */
     private void performSortStrings(){
-         Collections.sort(strArr, Comparator.comparing(String :: length).thenComparing(String::compareTo));
+         // There is nothing to gain from the buckets on a single core
+         if (strArr.size() >= parallelThreshold && ForkJoinPool.getCommonPoolParallelism() > 1) {
+             performParallelSortStrings();
+             return;
+         }
+         Collections.sort(strArr, ORDER);
+    }
+
+    /**
+     * This sorts the string array in the same order as <tt>performSortStrings</tt>, on all the cores.
+     *
+     * <p> The strings are counted by length and copied to their length bucket, so the array is
+     * ordered by length in two passes. Each bucket is then sorted alphabetically by a task of the
+     * common <tt>ForkJoinPool</tt>. A bucket of at least <tt>parallelThreshold</tt> strings, e.g. when
+     * all the strings have the same length, is sorted afterwards with <tt>Arrays.parallelSort</tt>,
+     * which uses the same pool. </p>
+     */
+    private void performParallelSortStrings() {
+        int maxLength = 0;
+        for (String s : strArr) {
+            maxLength = Math.max(maxLength, s.length());
+        }
+        // A very long string would need too many buckets
+        if (maxLength > MAX_BUCKETED_LENGTH) {
+            String[] sorted = strArr.toArray(new String[0]);
+            Arrays.parallelSort(sorted, ORDER);
+            copyBack(sorted);
+            return;
+        }
+
+        // Counting the strings of each length, bucketStart[length] is the first index of the bucket
+        int[] bucketStart = new int[maxLength + 2];
+        for (String s : strArr) {
+            bucketStart[s.length() + 1]++;
+        }
+        for (int length = 0; length <= maxLength; length++) {
+            bucketStart[length + 1] += bucketStart[length];
+        }
+
+        // Copying the strings to their buckets
+        String[] bucketed = new String[strArr.size()];
+        int[] next = Arrays.copyOf(bucketStart, maxLength + 1);
+        for (String s : strArr) {
+            bucketed[next[s.length()]++] = s;
+        }
+
+        // Sorting the small buckets concurrently, a task per bucket
+        ArrayList<RecursiveAction> tasks = new ArrayList<>();
+        for (int length = 0; length <= maxLength; length++) {
+            int from = bucketStart[length];
+            int to = bucketStart[length + 1];
+            if (to - from < 2 || to - from >= parallelThreshold) continue;
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    Arrays.sort(bucketed, from, to);
+                }
+            });
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        // Sorting the large buckets one after another, each of them on all the cores
+        for (int length = 0; length <= maxLength; length++) {
+            if (bucketStart[length + 1] - bucketStart[length] >= parallelThreshold) {
+                Arrays.parallelSort(bucketed, bucketStart[length], bucketStart[length + 1]);
+            }
+        }
+
+        copyBack(bucketed);
+    }
+
+    /**
+     * Replaces the strings of the string array with the sorted strings
+     *
+     * @param sorted the sorted strings, as many as in the string array
+     */
+    private void copyBack(String[] sorted) {
+        for (int i = 0; i < sorted.length; i++) {
+            strArr.set(i, sorted[i]);
+        }
+    }
+
+    /**
+     * Sets the minimum number of strings which are sorted in parallel. Smaller inputs, and all the
+     * inputs on a single core machine, are sorted on the calling thread.
+     *
+     * @param parallelThreshold number of strings, <tt>Integer.MAX_VALUE</tt> never sorts in parallel
+     * @throws IllegalArgumentException If the threshold is negative
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("Parallel threshold should not be negative : " + parallelThreshold);
+        this.parallelThreshold = parallelThreshold;
     }
 
     /**
@@ -62,8 +461,9 @@ public class SortStrings {
      *
      */
     public void printSortedStrings() {
-        performSortStrings();
-        System.out.println("Sorted Strings : " + strArr);
+        ArrayList<String> strings = new ArrayList<>(size());
+        sortedStrings().forEach(strings::add);
+        System.out.println("Sorted Strings : " + strings);
     }
 
     /**
@@ -72,8 +472,111 @@ public class SortStrings {
      * @return an array containing all sorted strings
      */
     public String[] toArray(String x[]) {
-        performSortStrings();
-        return strArr.toArray(x);
+        if (strArr != null) {
+            sortedStrings();
+            return strArr.toArray(x);
+        }
+        // Copying the buckets in order
+        String[] array = x.length >= bucketedSize ? x : Arrays.copyOf(x, bucketedSize);
+        int i = 0;
+        for (String s : sortedStrings()) {
+            array[i++] = s;
+        }
+        if (array.length > bucketedSize) array[bucketedSize] = null;
+        return array;
+    }
+
+    /**
+     * Iterator which takes the strings of the buckets in the sorted order, each string as many times
+     * as it was added.
+     */
+    private static class BucketIterator implements Iterator<String> {
+        private final Iterator<TreeMap<String, Integer>> buckets;
+        private Iterator<Map.Entry<String, Integer>> entries = Collections.emptyIterator();
+        private String current;
+        private int remaining = 0;  // number of times the current string is still to be taken
+
+        /**
+         * @param buckets the buckets, from the shortest length
+         */
+        private BucketIterator(Collection<TreeMap<String, Integer>> buckets) {
+            this.buckets = buckets.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (remaining == 0) {
+                if (entries.hasNext()) {
+                    Map.Entry<String, Integer> entry = entries.next();
+                    current = entry.getKey();
+                    remaining = entry.getValue();
+                } else if (buckets.hasNext()) {
+                    entries = buckets.next().entrySet().iterator();
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            remaining--;
+            return current;
+        }
+    }
+
+    /**
+     * Iterator which takes the strings from a binary heap in the sorted order. The heap is built in
+     * O(n) and each string is taken in O(log n).
+     */
+    private static class HeapIterator implements Iterator<String> {
+        private final String[] heap;
+        private int size;
+
+        /**
+         * @param strings the strings, the array is used as the heap
+         */
+        private HeapIterator(String[] strings) {
+            heap = strings;
+            size = strings.length;
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return size > 0;
+        }
+
+        @Override
+        public String next() {
+            if (size == 0) throw new NoSuchElementException();
+            String first = heap[0];
+            heap[0] = heap[--size];
+            heap[size] = null;
+            siftDown(0);
+            return first;
+        }
+
+        /**
+         * Moves a string down the heap until it is not after its children
+         *
+         * @param i index of the string
+         */
+        private void siftDown(int i) {
+            String s = heap[i];
+            int child;
+            while ((child = 2 * i + 1) < size) {
+                if (child + 1 < size && ORDER.compare(heap[child + 1], heap[child]) < 0) child++;
+                if (ORDER.compare(s, heap[child]) <= 0) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = s;
+        }
     }
 
 
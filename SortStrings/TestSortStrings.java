@@ -1,21 +1,51 @@
 package collections.SortStrings;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
 /**
  * This class tests SortStrings class
  *
+ * <p> Without arguments, the strings are entered one by one. With arguments, the strings are read
+ * from a file, or from the standard input if the file is "-", and printed a string per line:</p>
+ *
+ * <code>
+ * java collections.SortStrings.TestSortStrings strings.txt
+ * cat strings.txt | java collections.SortStrings.TestSortStrings --lines -
+ * </code>
+ *
+ * <p> The strings are separated by whitespace, or by line breaks with <tt>--lines</tt>. </p>
+ *
  * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
  */
 public class TestSortStrings {
     /**
      * main class
      *
-     * @param args null
+     * @param args [--lines] file, or null to enter the strings
+     * @throws IOException If the strings cannot be read or written
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         //Testing the SortStrings class
         SortStrings obj = new SortStrings();
-        obj.getUserInput();
-        obj.printSortedStrings();
+        if (args.length == 0) {
+            obj.getUserInput();
+            obj.printSortedStrings();
+            return;
+        }
 
+        // Batch mode
+        boolean lines = args[0].equals("--lines");
+        if (args.length != (lines ? 2 : 1)) {
+            System.err.println("Usage : TestSortStrings [--lines] <file | ->");
+            System.exit(1);
+        }
+        String path = args[args.length - 1];
+        InputStream input = path.equals("-") ? System.in : new FileInputStream(path);
+        try (Reader in = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            obj.readStrings(in, lines);
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        obj.writeSortedStrings(out);
     }
 }
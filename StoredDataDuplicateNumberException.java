@@ -0,0 +1,22 @@
+/**
+ * <tt>StoredDataDuplicateNumberException</tt> extends IOException.
+ * This exception is thrown If duplicate numbers are found in the contact list.
+ *
+ */
+class StoredDataDuplicateNumberException extends DuplicateNumberException {
+    /**
+     * Constructs a <tt>StoredDataDuplicateNumberException</tt> with default error detail message.
+     *
+     */
+    public StoredDataDuplicateNumberException() {}
+
+    /**
+     * Constructs a <tt>StoredDataDuplicateNumberException</tt> with the
+     * specified detail message.
+     *
+     * @param message The detailed message.
+     */
+    public StoredDataDuplicateNumberException(String message) {
+        super(message);
+    }
+}
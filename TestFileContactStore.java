@@ -0,0 +1,115 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class tests FileContactStore when it is used from many threads of a process at once.
+ *
+ * <p> Every thread inserts its own contacts one by one, and some numbers are inserted by two threads.
+ * Every number should be stored exactly once, and the contact list should stay sorted: </p>
+ *
+ * <code>
+ * java TestFileContactStore 8 50
+ * </code>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+public class TestFileContactStore {
+    /**
+     * main class
+     *
+     * @param args [threads [contacts per thread]]
+     * @throws Exception If the test cannot be run
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        File directory = Files.createTempDirectory("contact_list_test").toFile();
+        File contactList = new File(directory, "contact_list.txt");
+        contactList.createNewFile();
+        FileContactStore store = new FileContactStore(contactList);
+
+        // Inserting from all the threads at once, every 10th number is inserted by the next thread as well
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    insert(store, "Thread " + letters(thread) + " Contact " + letters(i),
+                            8000000000L + thread * 10000L + i, rejected);
+                    if (i % 10 == 0) {
+                        int next = (thread + 1) % threads;
+                        insert(store, "Other " + letters(thread) + " Contact " + letters(i),
+                                8000000000L + next * 10000L + i, rejected);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) result.get();
+        pool.shutdown();
+
+        // Checking the contact list
+        List<Contact> contacts;
+        try (Stream<Contact> stream = store.stream()) {
+            contacts = stream.collect(Collectors.toList());
+        }
+        long numbers = contacts.stream().mapToLong(Contact::getNumber).distinct().count();
+        boolean sorted = true;
+        for (int i = 1; i < contacts.size(); i++) {
+            if (contacts.get(i - 1).compareTo(contacts.get(i)) > 0) sorted = false;
+        }
+        int expected = threads * perThread;
+        int repeated = threads * ((perThread + 9) / 10);
+        System.out.println(contacts.size() + " contacts, " + numbers + " numbers, " + rejected + " rejected");
+        for (File file : directory.listFiles()) file.delete();
+        directory.delete();
+        if (contacts.size() != expected || numbers != expected || !sorted || rejected.get() != repeated) {
+            System.out.println("FAILED : expected " + expected + " sorted contacts with distinct numbers and "
+                    + repeated + " rejected");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Inserts a contact and counts it if it is rejected as a duplicate
+     *
+     * @param store the store
+     * @param name name
+     * @param number phone number
+     * @param rejected number of rejected contacts
+     * @throws IOException If the contact cannot be inserted
+     */
+    private static void insert(FileContactStore store, String name, long number, AtomicInteger rejected)
+            throws IOException {
+        try {
+            store.insert(name, number);
+        } catch (InputDuplicateNumberException e) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param n a number
+     * @return the number written in letters, "B" for 1 and "Ab" for 26, as names cannot have digits
+     */
+    private static String letters(int n) {
+        StringBuilder word = new StringBuilder();
+        do {
+            word.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+}
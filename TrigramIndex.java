@@ -0,0 +1,308 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <tt>TrigramIndex</tt> is a sidecar index file of a contact list which maps the trigrams and the
+ * Soundex codes of the names to the byte offsets of their lines in the contact list.
+ *
+ * <p> The index is stored next to the contact list as <tt>contact_list.txt.tri</tt>. The names are
+ * lower cased and padded as "  mary anne ", so "  m", " ma", "mar", ... are its trigrams. Every word of
+ * the name adds its Soundex code as well. Trigrams and codes are numbered as keys, so the index is a
+ * directory of <tt>KEYS + 1</tt> positions followed by the sorted offsets of each key. </p>
+ *
+ * <code>
+ * header    : magic(int) version(int) mtime(long) size(long) count(long)
+ * directory : (KEYS + 1) x position(long)
+ * postings  : count x offset(long)
+ * </code>
+ *
+ * <p> Like the <tt>NumberIndex</tt>, the index is rebuilt if the modification time or the size of the
+ * contact list no longer match its header. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+class TrigramIndex {
+    // Index file extension which is appended to the contact list file name
+    static final String EXTENSION = ".tri";
+
+    private static final int MAGIC = 0x434C5452;    // "CLTR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    // Characters of the trigrams: space, a to z and any other character
+    private static final int ALPHABET = 28;
+    private static final int TRIGRAMS = ALPHABET * ALPHABET * ALPHABET;
+    // Soundex codes: a letter and 3 digits from 0 to 6
+    private static final int KEYS = TRIGRAMS + 26 * 7 * 7 * 7;
+    // Weight of a Soundex match when the candidates are counted, a trigram counts 1
+    private static final int SOUNDEX_WEIGHT = 3;
+    // Bound of the count of a line, which is packed above its offset when the candidates are ranked
+    private static final long MAX_SHARED = 1L << 23;
+
+    // Opened indexes by the canonical path of the contact list, reused while the contact list is unchanged
+    private static final ConcurrentHashMap<String, TrigramIndex> OPENED = new ConcurrentHashMap<>();
+
+    private final String path;  // canonical path of the contact list
+    private final long mtime;   // modification time of the contact list
+    private final long size;    // size of the contact list
+    private final LongBuffer directory;
+    private final LongBuffer postings;
+
+    /**
+     * Constructs a <tt>TrigramIndex</tt> over an opened index file.
+     * The mapping stays valid after the file is closed.
+     *
+     * @param channel opened index file
+     * @param header header of the index file
+     * @param path canonical path of the contact list
+     * @throws IOException If the index cannot be mapped
+     */
+    private TrigramIndex(FileChannel channel, ByteBuffer header, String path) throws IOException {
+        this.path = path;
+        this.mtime = header.getLong(8);
+        this.size = header.getLong(16);
+        long count = header.getLong(24);
+        long directorySize = (KEYS + 1) * 8L;
+        this.directory = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, directorySize).asLongBuffer();
+        this.postings = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + directorySize, count * 8)
+                .asLongBuffer();
+    }
+
+    /**
+     * <tt>open(contactList)</tt> opens the index of a contact list.
+     * The index is rebuilt if it does not exist or if it is out of date.
+     *
+     * <p> The index is rebuilt under the <tt>ContactListLock</tt> of the contact list, and checked
+     * again once the lock is held, as another thread or program may have done it meanwhile. </p>
+     *
+     * @param contactList contact list
+     * @return the opened index
+     * @throws IOException If the contact list or the index cannot be read
+     */
+    static TrigramIndex open(File contactList) throws IOException {
+        String path = contactList.getCanonicalPath();
+        TrigramIndex index = OPENED.get(path);
+        if (index != null && index.isCurrent(contactList)) return index;
+
+        File indexFile = indexFile(contactList);
+        if (!isFresh(contactList, indexFile)) {
+            ContactListLock lock = ContactListLock.acquire(contactList);
+            try {
+                if (!isFresh(contactList, indexFile)) rebuild(contactList);
+            } finally {
+                lock.close();
+            }
+        }
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            index = new TrigramIndex(channel, header, path);
+            OPENED.put(path, index);
+            return index;
+        }
+    }
+
+    /**
+     * <tt>isCurrent(contactList)</tt> checks whether the contact list is unchanged since the index was opened.
+     *
+     * @param contactList contact list
+     * @return true if the modification time and the size of the contact list match
+     */
+    private boolean isCurrent(File contactList) {
+        return mtime == contactList.lastModified() && size == contactList.length();
+    }
+
+    /**
+     * <tt>candidates(name, limit)</tt> returns the offsets of the lines which share the most
+     * trigrams and Soundex codes with the given name.
+     *
+     * @param name the misspelled name
+     * @param limit maximum number of candidates
+     * @return byte offsets of the candidate lines
+     */
+    long[] candidates(String name, int limit) {
+        // Merging the sorted postings of the keys, so the keys of a line are counted one after another
+        int[] keys = keys(name);
+        long[] heads = new long[keys.length];   // position of the next posting of every key
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, keys.length),
+                Comparator.comparingLong(k -> postings.get((int) heads[k])));
+        for (int k = 0; k < keys.length; k++) {
+            heads[k] = directory.get(keys[k]);
+            if (heads[k] < directory.get(keys[k] + 1)) queue.add(k);
+        }
+        long[] ranked = new long[1024];
+        int count = 0;
+        while (!queue.isEmpty()) {
+            long offset = postings.get((int) heads[queue.peek()]);
+            int shared = 0;
+            while (!queue.isEmpty() && postings.get((int) heads[queue.peek()]) == offset) {
+                int k = queue.poll();
+                shared += keys[k] < TRIGRAMS ? 1 : SOUNDEX_WEIGHT;
+                if (++heads[k] < directory.get(keys[k] + 1)) queue.add(k);
+            }
+            // Packing the count above the offset, so sorting puts the highest counts first
+            if (count == ranked.length) ranked = Arrays.copyOf(ranked, count * 2);
+            ranked[count++] = (MAX_SHARED - shared) << 40 | offset;
+        }
+
+        // Taking the lines with the highest counts
+        Arrays.sort(ranked, 0, count);
+        long[] offsets = new long[Math.min(limit, count)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = ranked[i] & ((1L << 40) - 1);
+        }
+        return offsets;
+    }
+
+    /**
+     * <tt>rebuild(contactList)</tt> scans the contact list and writes a new index. The modification time
+     * and the size are taken before the scan and only that many bytes are indexed, so a contact list
+     * which is changed meanwhile is found out of date by the next open. The caller should hold the
+     * <tt>ContactListLock</tt>.
+     *
+     * @param contactList contact list
+     * @throws IOException If the contact list or the index cannot be read or written
+     */
+    static void rebuild(File contactList) throws IOException {
+        long mtime = contactList.lastModified();
+        long size = contactList.length();
+        if (size >= 1L << 40) throw new IOException("Contact List is too large to be indexed");
+
+        // Collecting the keys of every line as key << 40 | offset, so sorting groups them by the key
+        long[] entries = new long[1024];
+        int count = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(contactList), 1 << 16)) {
+            byte[] line = new byte[256];
+            int len = 0;
+            long offset = 0;    // offset of the current line
+            long position = 0;  // offset of the next byte
+            int b;
+            while (true) {
+                b = position < size ? in.read() : -1;
+                if (b == -1 && len == 0) break;
+                position++;
+                if (b == '\n' || b == -1) {
+                    int colon = 0;
+                    while (colon < len && line[colon] != ':') colon++;
+                    for (int key : keys(new String(line, 0, colon, StandardCharsets.UTF_8))) {
+                        if (count == entries.length) entries = Arrays.copyOf(entries, count * 2);
+                        entries[count++] = (long) key << 40 | offset;
+                    }
+                    if (b == -1) break;
+                    offset = position;
+                    len = 0;
+                } else {
+                    if (len == line.length) line = Arrays.copyOf(line, len * 2);
+                    line[len++] = (byte) b;
+                }
+            }
+        }
+        if (count > Integer.MAX_VALUE / 8) throw new IOException("Contact List is too large to be indexed");
+        Arrays.sort(entries, 0, count);
+
+        // Writing the index to a temporary file and replacing the old index
+        File indexFile = indexFile(contactList);
+        File tempFile = File.createTempFile("contact_list", ".tmp", indexFile.getParentFile());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tempFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(mtime);
+            out.writeLong(size);
+            out.writeLong(count);
+            // Directory: the position of the first offset of every key
+            int i = 0;
+            for (int key = 0; key <= KEYS; key++) {
+                out.writeLong(i);
+                while (i < count && entries[i] >>> 40 == key) i++;
+            }
+            for (int j = 0; j < count; j++) {
+                out.writeLong(entries[j] & ((1L << 40) - 1));
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        ContactListLock.replace(tempFile, indexFile);
+    }
+
+    /**
+     * <tt>keys(name)</tt> returns the distinct trigram and Soundex keys of a name.
+     *
+     * @param name name
+     * @return the keys in ascending order
+     */
+    static int[] keys(String name) {
+        String padded = "  " + name.trim().toLowerCase() + " ";
+        int[] keys = new int[padded.length()];
+        int count = 0;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            keys[count++] = (code(padded.charAt(i)) * ALPHABET + code(padded.charAt(i + 1))) * ALPHABET
+                    + code(padded.charAt(i + 2));
+        }
+        for (String word : name.trim().split(" +")) {
+            String soundex = FuzzyNameMatcher.soundex(word);
+            if (soundex.isEmpty()) continue;
+            if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+            keys[count++] = TRIGRAMS + (((soundex.charAt(0) - 'A') * 7 + soundex.charAt(1) - '0') * 7
+                    + soundex.charAt(2) - '0') * 7 + soundex.charAt(3) - '0';
+        }
+
+        // Removing the repeated keys
+        Arrays.sort(keys, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || keys[distinct - 1] != keys[i]) keys[distinct++] = keys[i];
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    /**
+     * <tt>code(c)</tt> numbers a lower case character of a trigram.
+     *
+     * @param c the character
+     * @return 0 for space, 1 to 26 for a to z and 27 for any other character
+     */
+    private static int code(char c) {
+        if (c == ' ') return 0;
+        if (c >= 'a' && c <= 'z') return c - 'a' + 1;
+        return ALPHABET - 1;
+    }
+
+    /**
+     * <tt>indexFile(contactList)</tt> returns the index file of a contact list.
+     *
+     * @param contactList contact list
+     * @return the index file
+     */
+    static File indexFile(File contactList) {
+        return new File(contactList.getAbsolutePath() + EXTENSION);
+    }
+
+    /**
+     * <tt>isFresh(contactList, indexFile)</tt> checks whether the index matches the
+     * modification time and the size of the contact list.
+     *
+     * @param contactList contact list
+     * @param indexFile index file
+     * @return true if the index is up to date
+     */
+    private static boolean isFresh(File contactList, File indexFile) {
+        if (!indexFile.exists()) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION
+                    && in.readLong() == contactList.lastModified()
+                    && in.readLong() == contactList.length();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the hot paths of the contact list, over generated contact lists of 1k to 10M contacts.
+ *
+ * <p> The lookups report the throughput and the latency percentiles (sample time). The writes are
+ * timed one batch at a time on a fresh copy of the contact list (single shot time). Run with the
+ * JMH and json-simple jars on the class path, after compiling the contact list classes:</p>
+ *
+ * <code>
+ * javac -cp jmh-core.jar:jmh-generator-annprocess.jar:json-simple.jar -d out *.java benchmarks/*.java
+ * java -cp out:jmh-core.jar:json-simple.jar ContactListBenchmark [size...]
+ * </code>
+ *
+ * <p> <tt>main</tt> adds the GC profiler, so the allocation rate is reported as well.
+ * The lookup cache is disabled, so every lookup reads the contact list. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ContactListBenchmark {
+    // Words of the generated names
+    private static final String[] WORDS = {"Mary", "Anne", "John", "Doe", "David", "Alan", "Amy", "Smith",
+            "Lakindu", "Oshadha", "Peter", "Paul", "Sarah", "Kumar", "Silva", "Perera"};
+    // Number of queries which are cycled by the lookup benchmarks
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private File directory;
+    private File original;      // generated contact list, never written
+    private File contactList;   // copy of the generated contact list which is written by the benchmarks
+    private File jsonFile;
+    private FileContactStore store;
+    private String[] names = new String[QUERIES];
+    private String[] prefixes = new String[QUERIES];
+    private long[] numbers = new long[QUERIES];
+    private String[] lines = new String[QUERIES];
+    private long nextNumber;    // numbers above every generated number, for the inserts
+    private int i = 0;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("contact_list_bench").toFile();
+        original = new File(directory, "original.txt");
+        contactList = new File(directory, "contact_list.txt");
+        jsonFile = new File(directory, "contacts.json");
+        Random random = new Random(size);
+
+        // Generating the sorted contact list with distinct numbers
+        ArrayList<String> generated = new ArrayList<>(size);
+        for (int n = 0; n < size; n++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + WORDS[random.nextInt(WORDS.length)];
+            generated.add(new Contact(name, 2000000000L + n * 7L).toString());
+        }
+        generated.sort(null);
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(original)))) {
+            for (String line : generated) out.println(line);
+        }
+        nextNumber = 2000000000L + size * 7L;
+
+        // Picking the queries from the generated contacts
+        for (int q = 0; q < QUERIES; q++) {
+            Contact contact = Contact.parse(generated.get(random.nextInt(size)));
+            lines[q] = contact.toString();
+            names[q] = contact.getName().substring(contact.getName().indexOf(' ') + 1);
+            prefixes[q] = contact.getName().substring(0, contact.getName().lastIndexOf(' '));
+            numbers[q] = contact.getNumber();
+        }
+
+        // Generating a json file of 1000 new contacts
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(jsonFile)))) {
+            out.print("[");
+            for (int n = 0; n < 1000; n++) {
+                out.print((n == 0 ? "" : ",") + "{\"name\":\"" + WORDS[random.nextInt(WORDS.length)] + " "
+                        + WORDS[random.nextInt(WORDS.length)] + "\",\"number\":\"" + (9000000000L + n) + "\"}");
+            }
+            out.print("]");
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() throws IOException {
+        // Every iteration starts from the generated contact list, so the inserts do not pile up
+        Files.copy(original.toPath(), contactList.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        for (String extension : new String[] {NumberIndex.EXTENSION, DeltaSegment.EXTENSION}) {
+            Files.deleteIfExists(new File(contactList.getAbsolutePath() + extension).toPath());
+        }
+        store = new FileContactStore(contactList);
+        store.setLookupCache(new LookupCache(0));
+        store.findByNumber(numbers[0]);     // building the number index outside the measurement
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        File[] files = directory.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        directory.delete();
+    }
+
+    /**
+     * Substring search of a name, <tt>printLineByName</tt>
+     */
+    @Benchmark
+    public List<Contact> printLineByName() throws IOException {
+        return store.findContaining(names[i++ & (QUERIES - 1)]);
+    }
+
+    /**
+     * Prefix search of a name, <tt>printLineByNamePrefix</tt>
+     */
+    @Benchmark
+    public List<Contact> printLineByNamePrefix() throws IOException {
+        return store.findByName(prefixes[i++ & (QUERIES - 1)]);
+    }
+
+    /**
+     * Number lookup, <tt>printLineByNumber</tt>
+     */
+    @Benchmark
+    public List<Contact> printLineByNumber() throws IOException {
+        return store.findByNumber(numbers[i++ & (QUERIES - 1)]);
+    }
+
+    /**
+     * Insert of a new contact which rewrites the contact list, <tt>insertEntry</tt>
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = 10)
+    @Measurement(iterations = 20, batchSize = 10)
+    public void insertEntry() throws IOException {
+        store.insert(names[i++ & (QUERIES - 1)], nextNumber++);
+    }
+
+    /**
+     * Import of a json file of 1000 contacts, <tt>addDetailsFromJson</tt> as it is run by the command line:
+     * validated, spilled in sorted runs and merged into the contact list with one <tt>insertSorted</tt>.
+     * It prints its result line with every invocation.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void addDetailsFromJson() throws IOException {
+        ContactList.main(new String[] {contactList.getPath(), "add_json", jsonFile.getPath()});
+    }
+
+    /**
+     * Parsing the number of a line, <tt>getNumber</tt>
+     */
+    @Benchmark
+    public long getNumber() {
+        return Contact.getNumber(lines[i++ & (QUERIES - 1)]);
+    }
+
+    /**
+     * Capitalizing a name, <tt>capitalizeName</tt>
+     */
+    @Benchmark
+    public String capitalizeName() {
+        return ContactList.capitalizeName(names[i++ & (QUERIES - 1)].toLowerCase());
+    }
+
+    /**
+     * Runs the benchmarks with the GC profiler
+     *
+     * @param args list sizes, all the sizes if there are none
+     * @throws RunnerException If a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(ContactListBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class);
+        if (args.length > 0) options = options.param("size", args);
+        new Runner(options.build()).run();
+    }
+}
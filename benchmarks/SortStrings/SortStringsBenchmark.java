@@ -0,0 +1,127 @@
+package collections.SortStrings;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of <tt>SortStrings</tt> over random, pre-sorted and equal length strings.
+ *
+ * <p> <tt>sort</tt> sorts a new <tt>SortStrings</tt> with <tt>toArray</tt>, so it includes copying the
+ * strings into the <tt>SortStrings</tt>. <tt>toArray</tt> calls <tt>toArray</tt> again on already
+ * sorted strings, which copies them in order. <tt>addRemove</tt> changes the sorted strings in
+ * O(log n), without sorting them again. <tt>sortSequential</tt> sorts on a single thread, so it can be
+ * compared with the parallel, length bucketed sort of the larger sizes. <tt>topK</tt> selects the
+ * 100 first strings instead of sorting all of them. Run with the JMH jars on the class path:</p>
+ *
+ * <code>
+ * javac -cp jmh-core.jar:jmh-generator-annprocess.jar -d out SortStrings/*.java benchmarks/SortStrings/*.java
+ * java -cp out:jmh-core.jar collections.SortStrings.SortStringsBenchmark
+ * </code>
+ *
+ * <p> <tt>main</tt> adds the GC profiler, so the allocation rate is reported as well. </p>
+ *
+ * @author Lakindu Oshadha (lakinduoshadha98@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SortStringsBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"random", "sorted", "equalLength"})
+    private String distribution;
+
+    private List<String> strings;
+    private SortStrings sorted;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(size);
+        strings = new ArrayList<>(size);
+        for (int n = 0; n < size; n++) {
+            // Equal length strings are only ordered by the alphabetical order
+            int length = distribution.equals("equalLength") ? 8 : 1 + random.nextInt(16);
+            char[] chars = new char[length];
+            for (int c = 0; c < length; c++) {
+                chars[c] = (char) ('a' + random.nextInt(26));
+            }
+            strings.add(new String(chars));
+        }
+        if (distribution.equals("sorted")) {
+            strings.sort(Comparator.comparing(String::length).thenComparing(String::compareTo));
+        }
+        sorted = new SortStrings(strings);
+        sorted.toArray(new String[0]);
+    }
+
+    /**
+     * Sorting the strings, <tt>performSortStrings</tt> through <tt>toArray</tt>
+     */
+    @Benchmark
+    public String[] sort() {
+        return new SortStrings(strings).toArray(new String[0]);
+    }
+
+    /**
+     * Sorting the strings on the calling thread only
+     */
+    @Benchmark
+    public String[] sortSequential() {
+        SortStrings sortStrings = new SortStrings(strings);
+        sortStrings.setParallelThreshold(Integer.MAX_VALUE);
+        return sortStrings.toArray(new String[0]);
+    }
+
+    /**
+     * The 100 first strings of new <tt>SortStrings</tt>, without sorting all the strings
+     */
+    @Benchmark
+    public String[] topK() {
+        return new SortStrings(strings).topK(100);
+    }
+
+    /**
+     * <tt>toArray</tt> of already sorted strings
+     */
+    @Benchmark
+    public String[] toArray() {
+        return sorted.toArray(new String[0]);
+    }
+
+    /**
+     * Adding a string to sorted strings and removing it again, so the size stays the same
+     */
+    @Benchmark
+    public boolean addRemove() {
+        sorted.add("benchmark");
+        return sorted.remove("benchmark");
+    }
+
+    /**
+     * Runs the benchmarks with the GC profiler
+     *
+     * @param args list sizes, all the sizes if there are none
+     * @throws RunnerException If a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(SortStringsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class);
+        if (args.length > 0) options = options.param("size", args);
+        new Runner(options.build()).run();
+    }
+}